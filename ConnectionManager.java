@@ -0,0 +1,285 @@
+package src;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Opens tasks.db in WAL mode with one writer and one reader connection,
+// each confined to its own thread. Readers see the last committed state
+// without waiting for the writer, so list loads, searches, reminder scans
+// and exports never hold up a user's edit, and the reverse.
+final class ConnectionManager implements AutoCloseable {
+    // Waits out locks held by other processes (the CLI against a running app)
+    private static final int BUSY_TIMEOUT_MS = 5_000;
+    // Negative cache_size is in KiB
+    private static final int CACHE_KIB = 16 * 1024;
+    private static final long MMAP_BYTES = 256L << 20;
+
+    private final String url;
+    private final ExecutorService writeExecutor = newThread("todo-db-write");
+    private final ExecutorService readExecutor = newThread("todo-db-read");
+
+    // Each confined to its executor's thread
+    private CachedConnection writer;
+    private CachedConnection reader;
+    // The cancellable read running on the reader, if any
+    private CompletableFuture<?> runningRead;
+
+    ConnectionManager(String url) {
+        this.url = url;
+    }
+
+    private static ExecutorService newThread(String name) {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Opens the writer and runs setup (migrations) on it; the reader opens
+    // once that is done, so reads queued meanwhile wait for the schema
+    CompletableFuture<Void> open(SqlSetup setup) {
+        CompletableFuture<Void> written = write(Metrics.SQL_OPEN, c -> {
+            Class.forName("org.sqlite.JDBC");
+            writer = new CachedConnection(connect(false));
+            setup.run(writer.connection());
+            return null;
+        });
+        CompletableFuture<Void> read = read(Metrics.SQL_OPEN, c -> {
+            written.join();
+            reader = new CachedConnection(connect(true));
+            return null;
+        });
+        return CompletableFuture.allOf(written, read);
+    }
+
+    private Connection connect(boolean readOnly) throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+            if (!readOnly) {
+                // Persistent in the file; readers inherit it
+                stmt.execute("PRAGMA journal_mode = WAL");
+            }
+            // Durable across application crashes; only an OS crash can
+            // lose the last commits, never corrupt the file
+            stmt.execute("PRAGMA synchronous = NORMAL");
+            stmt.execute("PRAGMA cache_size = -" + CACHE_KIB);
+            stmt.execute("PRAGMA mmap_size = " + MMAP_BYTES);
+            stmt.execute("PRAGMA temp_store = MEMORY");
+            if (readOnly) {
+                stmt.execute("PRAGMA query_only = 1");
+            }
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
+    // The metric times the work itself, not the wait in the queue
+    <T> CompletableFuture<T> write(Metric metric, SqlWork<T> work) {
+        return submit(writeExecutor, () -> timed(metric, () -> work.run(writer)));
+    }
+
+    <T> CompletableFuture<T> read(Metric metric, SqlWork<T> work) {
+        return submit(readExecutor, () -> timed(metric, () -> work.run(reader)));
+    }
+
+    // Like read, but cancelling the future stops the work: a read still
+    // queued is skipped, and one already running has its statement
+    // interrupted, so a superseded query does not hold up the next one
+    <T> CompletableFuture<T> cancellableRead(Metric metric, SqlWork<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        readExecutor.execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            synchronized (this) {
+                runningRead = result;
+            }
+            try {
+                result.complete(timed(metric, () -> work.run(reader)));
+            } catch (Exception e) {
+                if (result.isCancelled()) {
+                    discardStatements();
+                }
+                result.completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    runningRead = null;
+                }
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                interrupt(result);
+            }
+        });
+        return result;
+    }
+
+    // The driver leaves an interrupted statement unusable
+    private void discardStatements() {
+        try {
+            reader.closeStatements();
+        } catch (SQLException e) {
+            // Dropped from the cache all the same
+        }
+    }
+
+    // Called from the cancelling thread; sqlite3_interrupt is safe from any
+    // thread and a no-op once the read's statements are done
+    private synchronized void interrupt(CompletableFuture<?> read) {
+        if (runningRead != read) {
+            return;
+        }
+        try {
+            reader.interrupt();
+        } catch (SQLException e) {
+            // The read runs to the end, and its result is dropped
+        }
+    }
+
+    // Completes once every read submitted so far has finished
+    CompletableFuture<Void> afterPendingReads() {
+        return submit(readExecutor, () -> null);
+    }
+
+    private static <T> T timed(Metric metric, Callable<T> call) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            metric.recordSince(start);
+        }
+    }
+
+    private static <T> CompletableFuture<T> submit(ExecutorService executor, Callable<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    // Lets queued work drain, then closes the reader and finally the writer,
+    // whose close checkpoints the WAL back into the database file
+    @Override
+    public void close() {
+        shutDown(readExecutor, () -> reader);
+        shutDown(writeExecutor, () -> writer);
+    }
+
+    private static void shutDown(ExecutorService executor, Callable<CachedConnection> connection) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                CachedConnection conn = connection.call();
+                if (conn != null) {
+                    conn.close();
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // A connection with its prepared statements kept open and reused by
+    // SQL text. Statements from prepare() must not be closed by callers.
+    static final class CachedConnection implements AutoCloseable {
+        private final Connection conn;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        // Only ever cancelled, which interrupts whatever the connection runs
+        private final Statement interrupter;
+
+        CachedConnection(Connection conn) throws SQLException {
+            this.conn = conn;
+            this.interrupter = conn.createStatement();
+        }
+
+        Connection connection() {
+            return conn;
+        }
+
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement pst = statements.get(sql);
+            if (pst == null) {
+                pst = conn.prepareStatement(sql);
+                statements.put(sql, pst);
+            }
+            return pst;
+        }
+
+        // Safe from any thread, unlike everything else here
+        void interrupt() throws SQLException {
+            interrupter.cancel();
+        }
+
+        // Runs work in one transaction, rolled back if it throws
+        <T> T inTransaction(SqlWork<T> work) throws SQLException {
+            conn.setAutoCommit(false);
+            try {
+                T result = work.run(this);
+                conn.commit();
+                return result;
+            } catch (Exception e) {
+                conn.rollback();
+                throw e instanceof SQLException ? (SQLException) e : new SQLException(e);
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        // Later prepare() calls compile their statements afresh
+        void closeStatements() throws SQLException {
+            try {
+                for (PreparedStatement pst : statements.values()) {
+                    pst.close();
+                }
+            } finally {
+                statements.clear();
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            closeStatements();
+            interrupter.close();
+            if (!conn.isClosed()) {
+                conn.close();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface SqlWork<T> {
+        T run(CachedConnection conn) throws Exception;
+    }
+
+    @FunctionalInterface
+    interface SqlSetup {
+        void run(Connection conn) throws Exception;
+    }
+}
@@ -0,0 +1,24 @@
+package src;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+// Parses and formats due times as entered in the UI. SimpleDateFormat is
+// not thread-safe, so each thread gets its own (lenient) instance.
+final class DueDates {
+    static final String DATE_FORMAT = "yyyy-MM-dd HH:mm";
+
+    private static final ThreadLocal<SimpleDateFormat> FORMAT =
+        ThreadLocal.withInitial(() -> new SimpleDateFormat(DATE_FORMAT));
+
+    private DueDates() {
+    }
+
+    static long parse(String text) throws ParseException {
+        return FORMAT.get().parse(text).getTime();
+    }
+
+    static String format(long epochMillis) {
+        return FORMAT.get().format(epochMillis);
+    }
+}
@@ -0,0 +1,266 @@
+package src;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Deadline-driven reminder scheduler. Every open task contributes two
+// boundaries (one hour before it is due, and the due time itself) to a
+// priority queue, and a single timer sleeps until the earliest one instead
+// of rescanning the database every minute. Each boundary fires once, so a
+// task is reminded of once per due time and again only after a snooze or
+// edit gives it a new one. Tasks that fire are handed to the listener in
+// batches at most every -Dtodo.notify.intervalMinutes (default 2), and
+// held during -Dtodo.notify.quietHours (e.g. 22:00-07:00), so a backlog of
+// overdue tasks costs one notification.
+class DueNotifier implements AutoCloseable {
+    static final long DUE_SOON_WINDOW = 60 * 60 * 1000;
+
+    private final Consumer<List<Task>> listener;
+    private final ScheduledThreadPoolExecutor timer;
+    private final long minInterval;
+    private final QuietHours quietHours;
+
+    // Guarded by this
+    private final PriorityQueue<Boundary> boundaries = new PriorityQueue<>();
+    private final Map<Integer, Tracked> tracked = new HashMap<>();
+    private ScheduledFuture<?> wakeup;
+    private long wakeupAt = Long.MAX_VALUE;
+    // Fired but not yet handed to the listener
+    private final Map<Integer, Tracked> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> delivery;
+    private long lastDelivered = Long.MIN_VALUE / 2;
+
+    DueNotifier(Consumer<List<Task>> listener) {
+        this.listener = listener;
+        this.minInterval = Long.getLong("todo.notify.intervalMinutes", 2) * 60_000;
+        this.quietHours = QuietHours.parse(System.getProperty("todo.notify.quietHours"));
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "todo-notifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    // Reconciles with a fresh view of all tasks. Tasks whose due time is
+    // unchanged keep their schedule, so a reload never repeats a reminder.
+    synchronized void sync(Collection<Task> tasks) {
+        long start = System.nanoTime();
+        Set<Integer> open = new HashSet<>();
+        for (Task task : tasks) {
+            if (task.getStatus().isOpen()) {
+                open.add(task.getId());
+                track(task);
+            }
+        }
+        tracked.keySet().retainAll(open);
+        rearm();
+        Metrics.NOTIFIER_SYNC.recordSince(start, tasks.size());
+    }
+
+    // Starts reminding about a task, or picks up a new due time
+    synchronized void track(Task task) {
+        long due = task.getDue();
+        Tracked previous = tracked.get(task.getId());
+        if (previous != null && previous.due == due) {
+            previous.task = task;
+            return;
+        }
+        schedule(task, due, true);
+    }
+
+    // A snoozed task is reminded again when it comes due, not an hour before
+    synchronized void snooze(Task task, long newDue) {
+        schedule(task, newDue, false);
+    }
+
+    synchronized void untrack(int taskId) {
+        // Queue and pending entries for the task are dropped lazily when
+        // they come up
+        tracked.remove(taskId);
+    }
+
+    // Whether the task is still open as far as reminders go
+    synchronized boolean isTracked(int taskId) {
+        return tracked.containsKey(taskId);
+    }
+
+    private void schedule(Task task, long due, boolean remindBeforeDue) {
+        Tracked entry = new Tracked(task, due);
+        tracked.put(task.getId(), entry);
+        if (remindBeforeDue) {
+            boundaries.add(new Boundary(due - DUE_SOON_WINDOW, entry));
+        }
+        boundaries.add(new Boundary(due, entry));
+        rearm();
+    }
+
+    private void rearm() {
+        Boundary next = boundaries.peek();
+        while (next != null && tracked.get(next.entry.task.getId()) != next.entry) {
+            boundaries.poll();
+            next = boundaries.peek();
+        }
+        long at = next == null ? Long.MAX_VALUE : next.at;
+        if (at == wakeupAt && wakeup != null) {
+            return;
+        }
+        if (wakeup != null) {
+            wakeup.cancel(false);
+            wakeup = null;
+        }
+        wakeupAt = at;
+        if (next != null && !timer.isShutdown()) {
+            long delay = Math.max(0, at - System.currentTimeMillis());
+            wakeup = timer.schedule(this::fire, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void fire() {
+        long start = System.nanoTime();
+        int fired = 0;
+        synchronized (this) {
+            wakeup = null;
+            wakeupAt = Long.MAX_VALUE;
+            long now = System.currentTimeMillis();
+            while (!boundaries.isEmpty() && boundaries.peek().at <= now) {
+                Tracked entry = boundaries.poll().entry;
+                if (tracked.get(entry.task.getId()) == entry) {
+                    pending.put(entry.task.getId(), entry);
+                    fired++;
+                }
+            }
+            rearm();
+        }
+        Metrics.NOTIFIER_FIRE.recordSince(start, fired);
+        if (fired > 0) {
+            deliver();
+        }
+    }
+
+    // Hands everything pending to the listener as one batch, or sets a
+    // timer for when the rate limit and quiet hours allow it. Tasks
+    // finished, deleted or rescheduled in the meantime are left out.
+    private void deliver() {
+        List<Task> batch;
+        synchronized (this) {
+            pending.values().removeIf(entry -> tracked.get(entry.task.getId()) != entry);
+            if (pending.isEmpty()) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long at = Math.max(lastDelivered + minInterval, quietHours != null ? quietHours.heldUntil(now) : now);
+            if (at > now) {
+                if (delivery == null && !timer.isShutdown()) {
+                    delivery = timer.schedule(() -> {
+                        synchronized (this) {
+                            delivery = null;
+                        }
+                        deliver();
+                    }, at - now, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+            batch = new ArrayList<>(pending.size());
+            for (Tracked entry : pending.values()) {
+                batch.add(entry.task);
+            }
+            pending.clear();
+            lastDelivered = now;
+        }
+        listener.accept(batch);
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    private static class Tracked {
+        private Task task;
+        private final long due;
+
+        Tracked(Task task, long due) {
+            this.task = task;
+            this.due = due;
+        }
+    }
+
+    // Local times of day between which reminders are held back, possibly
+    // spanning midnight
+    static final class QuietHours {
+        private final LocalTime from;
+        private final LocalTime to;
+
+        QuietHours(LocalTime from, LocalTime to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        // "22:00-07:00"; null when unset or unreadable
+        static QuietHours parse(String spec) {
+            if (spec == null || spec.isBlank()) {
+                return null;
+            }
+            String[] parts = spec.trim().split("-");
+            try {
+                if (parts.length == 2) {
+                    return new QuietHours(LocalTime.parse(parts[0].trim()), LocalTime.parse(parts[1].trim()));
+                }
+            } catch (DateTimeParseException e) {
+                // Reported below
+            }
+            System.err.println("Ignoring todo.notify.quietHours, expected HH:mm-HH:mm: " + spec);
+            return null;
+        }
+
+        // The end of the quiet period the given time falls in, or the time
+        // itself when it is outside one
+        long heldUntil(long now) {
+            ZonedDateTime time = Instant.ofEpochMilli(now).atZone(ZoneId.systemDefault());
+            LocalTime clock = time.toLocalTime();
+            boolean quiet = from.isBefore(to)
+                ? !clock.isBefore(from) && clock.isBefore(to)
+                : from.isAfter(to) && (!clock.isBefore(from) || clock.isBefore(to));
+            if (!quiet) {
+                return now;
+            }
+            ZonedDateTime end = time.with(to);
+            if (!end.isAfter(time)) {
+                end = end.plusDays(1);
+            }
+            return end.toInstant().toEpochMilli();
+        }
+    }
+
+    private static class Boundary implements Comparable<Boundary> {
+        private final long at;
+        private final Tracked entry;
+
+        Boundary(long at, Tracked entry) {
+            this.at = at;
+            this.entry = entry;
+        }
+
+        @Override
+        public int compareTo(Boundary other) {
+            return Long.compare(at, other.at);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package src;
+
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Opt-in EDT stall detector (-Dtodo.watchdog=true). A daemon thread posts a
+// heartbeat through invokeLater; when one has not run within the threshold
+// (-Dtodo.watchdog.thresholdMs, default 500) the EDT's stack is sampled
+// until it catches up, and a short report of where it was stuck goes to a
+// rolling log (-Dtodo.watchdog.log, default edt-stalls.log). Modal dialogs
+// keep pumping events, so they do not count as stalls.
+final class EdtWatchdog {
+    private static final long HEARTBEAT_MS = 100;
+    private static final long SAMPLE_MS = 50;
+    private static final int TOP_METHODS = 5;
+    private static final int STACK_FRAMES = 15;
+    private static final long MAX_LOG_BYTES = 1 << 20;
+    private static final int LOG_BACKUPS = 3;
+    private static final String APP_PACKAGE = EdtWatchdog.class.getPackageName() + ".";
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final long thresholdNanos;
+    private final Path log;
+    private volatile Thread edt;
+    private volatile long beat;
+    private int stalls;
+
+    private EdtWatchdog(long thresholdMs, Path log) {
+        this.thresholdNanos = thresholdMs * 1_000_000;
+        this.log = log;
+    }
+
+    static void startIfEnabled() {
+        if (!Boolean.getBoolean("todo.watchdog")) {
+            return;
+        }
+        EdtWatchdog watchdog = new EdtWatchdog(
+            Long.getLong("todo.watchdog.thresholdMs", 500),
+            Paths.get(System.getProperty("todo.watchdog.log", "edt-stalls.log")));
+        Thread thread = new Thread(watchdog::run, "todo-edt-watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                long posted = System.nanoTime();
+                SwingUtilities.invokeLater(() -> {
+                    edt = Thread.currentThread();
+                    beat = posted;
+                });
+
+                Stall stall = null;
+                while (beat != posted) {
+                    long waited = System.nanoTime() - posted;
+                    if (waited < thresholdNanos) {
+                        Thread.sleep(Math.max(1, Math.min(SAMPLE_MS, (thresholdNanos - waited) / 1_000_000)));
+                        continue;
+                    }
+                    Thread thread = edtThread();
+                    if (thread != null) {
+                        if (stall == null) {
+                            stall = new Stall();
+                        }
+                        stall.sample(thread.getStackTrace());
+                    }
+                    Thread.sleep(SAMPLE_MS);
+                }
+                if (stall != null) {
+                    Metrics.UI_EDT_STALL.recordSince(posted);
+                    write(stall.report(++stalls, System.nanoTime() - posted));
+                }
+                Thread.sleep(HEARTBEAT_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Known from the first heartbeat; a stall before that (during startup)
+    // is found by the EDT's thread name
+    private Thread edtThread() {
+        Thread thread = edt;
+        if (thread == null) {
+            for (Thread candidate : Thread.getAllStackTraces().keySet()) {
+                if (candidate.getName().startsWith("AWT-EventQueue-")) {
+                    edt = thread = candidate;
+                }
+            }
+        }
+        return thread;
+    }
+
+    private void write(String report) {
+        System.err.print(report);
+        try {
+            if (Files.exists(log) && Files.size(log) > MAX_LOG_BYTES) {
+                roll();
+            }
+            Files.write(log, report.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Could not write " + log + ": " + e.getMessage());
+        }
+    }
+
+    // edt-stalls.log becomes .1, .1 becomes .2, and so on; the oldest is dropped
+    private void roll() throws IOException {
+        for (int i = LOG_BACKUPS - 1; i >= 1; i--) {
+            Path older = backup(i);
+            if (Files.exists(older)) {
+                Files.move(older, backup(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(log, backup(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path backup(int index) {
+        return log.resolveSibling(log.getFileName() + "." + index);
+    }
+
+    // Stack samples from one stall, grouped by the innermost frame in our
+    // own code (or the innermost frame when there is none)
+    private static final class Stall {
+        private final LocalDateTime started = LocalDateTime.now();
+        private final Map<String, Integer> hits = new HashMap<>();
+        private final Map<String, StackTraceElement[]> stacks = new HashMap<>();
+        private int samples;
+
+        void sample(StackTraceElement[] stack) {
+            if (stack.length == 0) {
+                return;
+            }
+            StackTraceElement frame = stack[0];
+            for (StackTraceElement element : stack) {
+                if (element.getClassName().startsWith(APP_PACKAGE)) {
+                    frame = element;
+                    break;
+                }
+            }
+            String method = frame.getClassName() + "." + frame.getMethodName();
+            hits.merge(method, 1, Integer::sum);
+            stacks.putIfAbsent(method, stack);
+            samples++;
+        }
+
+        String report(int number, long nanos) {
+            List<Map.Entry<String, Integer>> ranked = new ArrayList<>(hits.entrySet());
+            ranked.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+
+            StringBuilder out = new StringBuilder();
+            out.append(String.format(Locale.ROOT, "%s EDT stall #%d: %.2f s, %d samples%n",
+                TIMESTAMP.format(started), number, nanos / 1e9, samples));
+            for (int i = 0; i < Math.min(TOP_METHODS, ranked.size()); i++) {
+                Map.Entry<String, Integer> entry = ranked.get(i);
+                out.append(String.format(Locale.ROOT, "  %3d%%  %s%n",
+                    100 * entry.getValue() / samples, entry.getKey()));
+            }
+            if (!ranked.isEmpty()) {
+                StackTraceElement[] stack = stacks.get(ranked.get(0).getKey());
+                out.append("  stack:\n");
+                for (int i = 0; i < Math.min(STACK_FRAMES, stack.length); i++) {
+                    out.append("    at ").append(stack[i]).append('\n');
+                }
+                if (stack.length > STACK_FRAMES) {
+                    out.append("    ... ").append(stack.length - STACK_FRAMES).append(" more\n");
+                }
+            }
+            return out.toString();
+        }
+    }
+}
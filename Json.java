@@ -0,0 +1,191 @@
+package src;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Just enough JSON for flat task objects: string, number, boolean and null
+// values in a single object. Nested values are rejected.
+final class Json {
+    private Json() {
+    }
+
+    static Map<String, Object> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, Object> object = parser.object();
+        parser.skipWhitespace();
+        if (!parser.atEnd()) {
+            throw parser.error("Unexpected trailing content");
+        }
+        return object;
+    }
+
+    static StringBuilder appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"');
+    }
+
+    // {"id":1,"task":"...","due":"yyyy-MM-dd HH:mm","priority":"High","status":"Pending"}
+    static StringBuilder appendTask(StringBuilder out, Task task) {
+        out.append("{\"id\":").append(task.getId()).append(",\"task\":");
+        appendString(out, task.getDescription());
+        out.append(",\"due\":");
+        appendString(out, DueDates.format(task.getDue()));
+        out.append(",\"priority\":");
+        appendString(out, task.getPriority().label);
+        out.append(",\"status\":");
+        appendString(out, task.getStatus().label);
+        return out.append('}');
+    }
+
+    private static class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Map<String, Object> object() {
+            Map<String, Object> object = new LinkedHashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = string();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                object.put(key, value());
+                skipWhitespace();
+                char c = next();
+                if (c == '}') {
+                    return object;
+                }
+                if (c != ',') {
+                    throw error("Expected ',' or '}'");
+                }
+            }
+        }
+
+        private Object value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (text.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            }
+            if (text.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            }
+            if (text.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                int start = pos;
+                while (pos < text.length() && "+-.eE0123456789".indexOf(text.charAt(pos)) >= 0) {
+                    pos++;
+                }
+                String number = text.substring(start, pos);
+                try {
+                    return number.matches("-?\\d+") ? (Object) Long.parseLong(number) : (Object) Double.parseDouble(number);
+                } catch (NumberFormatException e) {
+                    throw error("Bad number " + number);
+                }
+            }
+            throw error("Unsupported value");
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder out = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return out.toString();
+                }
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case '"': case '\\': case '/': out.append(escaped); break;
+                    case 'b': out.append('\b'); break;
+                    case 'f': out.append('\f'); break;
+                    case 'n': out.append('\n'); break;
+                    case 'r': out.append('\r'); break;
+                    case 't': out.append('\t'); break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw error("Bad unicode escape");
+                        }
+                        try {
+                            out.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Bad unicode escape");
+                        }
+                        pos += 4;
+                        break;
+                    default: throw error("Bad escape \\" + escaped);
+                }
+            }
+        }
+
+        void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        boolean atEnd() {
+            return pos >= text.length();
+        }
+
+        private char peek() {
+            if (atEnd()) {
+                throw error("Unexpected end of input");
+            }
+            return text.charAt(pos);
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(char c) {
+            if (next() != c) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos);
+        }
+    }
+}
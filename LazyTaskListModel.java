@@ -0,0 +1,183 @@
+package src;
+
+import javax.swing.AbstractListModel;
+import javax.swing.SwingUtilities;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Windowed list model for very large databases. Only the row count is kept
+// up front; rows are fetched a page at a time (keyset pagination on
+// (due, id)) as the list asks for them, and an LRU cache bounds how many
+// pages stay in memory. Used from the EDT only.
+class LazyTaskListModel extends AbstractListModel<Task> {
+    static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 64;
+    private static final int MAX_IN_FLIGHT = 4;
+    private static final int MAX_QUEUED = 16;
+    private static final int PREFETCH_PAGES = 1;
+
+    // Shown for rows whose page has not arrived yet
+    static final Task PLACEHOLDER = new Task(0, "Loading…", 0, Priority.LOW, Status.PENDING);
+
+    private final TaskRepository repository;
+    private int size;
+    private int generation;
+    // data_version at the last reload that re-read the count
+    private long dataVersion = -1;
+
+    private final Map<Integer, List<Task>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Task>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    // Pages from before the last reload, shown until their replacement lands
+    private Map<Integer, List<Task>> stalePages = new LinkedHashMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+    // Most recently wanted last; the oldest requests are dropped once the
+    // user has scrolled past them
+    private final Deque<Integer> queued = new ArrayDeque<>();
+
+    LazyTaskListModel(TaskRepository repository) {
+        this.repository = repository;
+    }
+
+    static boolean isPlaceholder(Task task) {
+        return task == PLACEHOLDER;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public Task getElementAt(int index) {
+        int page = index / PAGE_SIZE;
+        int offset = index % PAGE_SIZE;
+        List<Task> rows = pages.get(page);
+        if (rows == null) {
+            request(page);
+            rows = stalePages.get(page);
+        }
+        return rows != null && offset < rows.size() ? rows.get(offset) : PLACEHOLDER;
+    }
+
+    // Loads the pages around the visible rows ahead of painting
+    void prefetch(int firstVisible, int lastVisible) {
+        if (firstVisible < 0 || size == 0) {
+            return;
+        }
+        int first = Math.max(0, firstVisible / PAGE_SIZE - PREFETCH_PAGES);
+        int last = Math.min((size - 1) / PAGE_SIZE, lastVisible / PAGE_SIZE + PREFETCH_PAGES);
+        for (int page = first; page <= last; page++) {
+            if (!pages.containsKey(page)) {
+                request(page);
+            }
+        }
+    }
+
+    // Re-reads the row count; cached pages are refetched as they are shown.
+    // When nothing has been committed since the last reload the pages are
+    // kept and only data_version is read.
+    void reload(Runnable onLoaded) {
+        long seen = dataVersion;
+        repository.refresh().thenCompose(ignored -> repository.dataVersion())
+            .whenComplete((version, error) -> SwingUtilities.invokeLater(() -> {
+                if (error != null) {
+                    System.err.println("Error refreshing tasks: " + error.getMessage());
+                } else if (version == seen) {
+                    if (onLoaded != null) {
+                        onLoaded.run();
+                    }
+                } else {
+                    recount(version, onLoaded);
+                }
+            }));
+    }
+
+    private void recount(long version, Runnable onLoaded) {
+        repository.countAll().whenComplete((count, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                System.err.println("Error counting tasks: " + error.getMessage());
+                return;
+            }
+            dataVersion = version;
+            generation++;
+            loading.clear();
+            queued.clear();
+            stalePages = new LinkedHashMap<>(pages);
+            pages.clear();
+            resize(count);
+            if (onLoaded != null) {
+                onLoaded.run();
+            }
+        }));
+    }
+
+    private void resize(int newSize) {
+        int oldSize = size;
+        size = newSize;
+        if (newSize > oldSize) {
+            fireIntervalAdded(this, oldSize, newSize - 1);
+        } else if (newSize < oldSize) {
+            fireIntervalRemoved(this, newSize, oldSize - 1);
+        }
+        if (Math.min(oldSize, newSize) > 0) {
+            fireContentsChanged(this, 0, Math.min(oldSize, newSize) - 1);
+        }
+    }
+
+    private void request(int page) {
+        if (loading.contains(page)) {
+            return;
+        }
+        queued.remove(page);
+        queued.addLast(page);
+        if (queued.size() > MAX_QUEUED) {
+            queued.removeFirst();
+        }
+        pump();
+    }
+
+    private void pump() {
+        while (loading.size() < MAX_IN_FLIGHT && !queued.isEmpty()) {
+            load(queued.removeLast());
+        }
+    }
+
+    private void load(int page) {
+        loading.add(page);
+        int requestGeneration = generation;
+
+        // Continue from the previous page's last row when we have it, so the
+        // query is an index seek rather than an OFFSET walk
+        List<Task> previous = pages.get(page - 1);
+        Task after = previous != null && previous.size() == PAGE_SIZE ? previous.get(PAGE_SIZE - 1) : null;
+
+        repository.loadPage(page * PAGE_SIZE, after, PAGE_SIZE).whenComplete((rows, error) ->
+            SwingUtilities.invokeLater(() -> {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loading.remove(page);
+                pump();
+                if (error != null) {
+                    System.err.println("Error loading tasks: " + error.getMessage());
+                    return;
+                }
+                pages.put(page, rows);
+                stalePages.remove(page);
+                int start = page * PAGE_SIZE;
+                int end = Math.min(size, start + PAGE_SIZE) - 1;
+                if (start <= end) {
+                    fireContentsChanged(this, start, end);
+                }
+            }));
+    }
+}
@@ -0,0 +1,626 @@
+package src;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+// A TaskStorage kept as an append-only log in one memory-mapped file. Each
+// write (an add, a batch insert, a batch of edits) appends one checksummed
+// frame holding every task it touched in full, so a crash keeps all of a
+// write or none of it. Opening the file replays the frames into memory and
+// reads never touch the disk; bytes after the last intact frame are copied
+// to a .tail file beside the log before appends reuse the space. Once most
+// of the log is superseded records, it is rewritten with only the live
+// tasks. That runs on the log's one thread like everything else, so reads
+// and writes queued meanwhile wait for it: a pause in proportion to the
+// live tasks, taken at most once per doubling of the log.
+//
+// This covers what TaskStore needs; search, paging, recurring series and
+// the archive are SQLite only, so the app and CLI use TaskRepository.
+// TaskStorageBenchmark compares the two.
+final class LogTaskStorage implements TaskStorage {
+    private static final int MAGIC = 0x544f444f;
+    // Format 1 had no recurring flag; such logs are rewritten on open
+    private static final int FORMAT = 2;
+    // Magic, format, next id, pruned-through and base change counter
+    private static final int HEADER_BYTES = 32;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    // Op, id, version, then due, priority, status, recurring and
+    // description length
+    private static final int DELETE_BYTES = 1 + 4 + 8;
+    private static final int PUT_BYTES = DELETE_BYTES + 8 + 1 + 1 + 1 + 4;
+    // Length before and checksum after each frame's body
+    private static final int FRAME_OVERHEAD = 8;
+    private static final int INITIAL_CAPACITY = 1 << 20;
+    private static final int COMPACT_FRAME_BYTES = 64 << 10;
+    // Compacts once the log is past this size and twice the live records
+    private static final long COMPACT_MIN_BYTES = 4L << 20;
+    // Like synchronous=NORMAL: an app crash loses nothing, and pages are
+    // forced often enough that an OS crash loses at most the last second
+    private static final long FORCE_INTERVAL_MS = 1_000;
+
+    private final Path file;
+    private final ScheduledThreadPoolExecutor executor;
+
+    // Confined to the executor's thread
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private final CRC32C crc = new CRC32C();
+    // Where the next frame goes
+    private int end;
+    private boolean dirty;
+    private boolean compacting;
+    // Where the log ended when a compaction last failed; the next waits
+    // until it has doubled past that, rather than retrying on every write
+    private long compactFailedAt;
+    private int nextId = 1;
+    // The change counter, bumped for every task put or deleted
+    private long version;
+    // Deletes at or before this were dropped by a compaction
+    private long prunedThrough;
+    private long liveBytes;
+    private final Map<Integer, Entry> live = new HashMap<>();
+    // Deleted id -> the version of its delete
+    private final Map<Integer, Long> deleted = new HashMap<>();
+    // Version -> the id put or deleted at it, for each id's latest change
+    private final TreeMap<Long, Integer> changes = new TreeMap<>();
+    // Pending tasks by due, for promoting them once overdue
+    private final TreeSet<Task> pending = new TreeSet<>(TaskViewIndex.LIST_ORDER);
+
+    LogTaskStorage(Path file) {
+        this.file = file;
+        this.executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "todo-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // A task as last written, with the version of that write and the size
+    // of its record, for deciding when to compact
+    private static final class Entry {
+        final Task task;
+        final long version;
+        final int size;
+
+        Entry(Task task, long version, int size) {
+            this.task = task;
+            this.version = version;
+            this.size = size;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> open() {
+        CompletableFuture<Void> opened = submit(Metrics.LOG_REPLAY, () -> {
+            replay();
+            Metrics.LOG_REPLAY.addRows(live.size());
+            return null;
+        });
+        executor.scheduleWithFixedDelay(this::force, FORCE_INTERVAL_MS, FORCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        return opened;
+    }
+
+    // Takes the lock, maps the file and rebuilds memory from its frames,
+    // stopping at the first one that is missing or fails its checksum
+    private void replay() throws IOException {
+        lockChannel = FileChannel.open(sibling(".lock"),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Already open in this JVM
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException(file + " is in use by another process");
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_CAPACITY));
+        if (size == 0) {
+            map.put(header(nextId, prunedThrough, version));
+            dirty = true;
+        } else if (size < HEADER_BYTES || map.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a task log");
+        }
+        int format = map.getInt(4);
+        if (format != FORMAT && format != 1) {
+            throw new IOException(file + " is in an unknown format " + format);
+        }
+        nextId = map.getInt(8);
+        prunedThrough = map.getLong(12);
+        version = map.getLong(20);
+
+        int at = HEADER_BYTES;
+        int length;
+        while ((length = frameLength(at)) >= 0) {
+            readFrame(map.slice(at + 4, length), format);
+            at += FRAME_OVERHEAD + length;
+        }
+        end = at;
+        if (end + 4 <= map.capacity() && map.getInt(end) != 0) {
+            keepTail(size);
+        }
+        if (format != FORMAT) {
+            rewrite();
+        }
+    }
+
+    // Usually a frame torn by a crash mid-write, but a damaged frame also
+    // hides every frame after it, so the bytes are copied aside and logged
+    // before being cleared for appends
+    private void keepTail(long size) throws IOException {
+        int last = (int) Math.min(size, map.capacity());
+        while (last > end && map.get(last - 1) == 0) {
+            last--;
+        }
+        Path tail = sibling(".tail-" + end);
+        try (FileChannel out = FileChannel.open(tail, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = map.slice(end, last - end);
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            out.force(true);
+        }
+        System.err.println("Discarded " + (last - end) + " bytes of " + file + " after offset " + end
+            + " that are not an intact frame; copied to " + tail);
+        byte[] zeros = new byte[COMPACT_FRAME_BYTES];
+        for (int i = end; i < last; i += zeros.length) {
+            map.put(i, zeros, 0, Math.min(zeros.length, last - i));
+        }
+        dirty = true;
+    }
+
+    // The body length of the frame at the given offset, or -1 if there is
+    // no whole, intact frame there
+    private int frameLength(int at) {
+        if (at + 4 > map.capacity()) {
+            return -1;
+        }
+        int length = map.getInt(at);
+        if (length <= 0 || length > map.capacity() - at - FRAME_OVERHEAD) {
+            return -1;
+        }
+        crc.reset();
+        crc.update(map.slice(at + 4, length));
+        return (int) crc.getValue() == map.getInt(at + 4 + length) ? length : -1;
+    }
+
+    private void readFrame(ByteBuffer body, int format) {
+        int count = body.getInt();
+        for (int i = 0; i < count; i++) {
+            byte op = body.get();
+            int id = body.getInt();
+            long at = body.getLong();
+            version = Math.max(version, at);
+            nextId = Math.max(nextId, id + 1);
+            if (op == DELETE) {
+                removed(id, at);
+                continue;
+            }
+            long due = body.getLong();
+            Priority priority = Priority.fromCode(body.get());
+            Status status = Status.fromCode(body.get());
+            boolean recurring = format != 1 && body.get() != 0;
+            byte[] description = new byte[body.getInt()];
+            body.get(description);
+            put(new Task(id, new String(description, UTF_8), due, priority, status, recurring), at,
+                PUT_BYTES + description.length);
+        }
+    }
+
+    private void put(Task task, long at, int size) {
+        Entry old = live.put(task.getId(), new Entry(task, at, size));
+        if (old != null) {
+            forget(old);
+        }
+        Long deletedAt = deleted.remove(task.getId());
+        if (deletedAt != null) {
+            changes.remove(deletedAt);
+        }
+        changes.put(at, task.getId());
+        liveBytes += size;
+        if (task.getStatus() == Status.PENDING) {
+            pending.add(task);
+        }
+    }
+
+    private void removed(int id, long at) {
+        Entry old = live.remove(id);
+        if (old != null) {
+            forget(old);
+        }
+        Long deletedAt = deleted.put(id, at);
+        if (deletedAt != null) {
+            changes.remove(deletedAt);
+        }
+        changes.put(at, id);
+    }
+
+    private void forget(Entry old) {
+        changes.remove(old.version);
+        liveBytes -= old.size;
+        if (old.task.getStatus() == Status.PENDING) {
+            pending.remove(old.task);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Task> add(String description, long due, Priority priority) {
+        return submit(Metrics.LOG_WRITE, () -> {
+            Task task = new Task(nextId++, description, due, priority, Status.PENDING);
+            append(List.of(task), List.of());
+            Metrics.LOG_WRITE.addRows(1);
+            return task;
+        });
+    }
+
+    // Inserts new tasks (ids are ignored) as one frame
+    @Override
+    public CompletableFuture<Integer> insertAll(List<Task> tasks) {
+        return submit(Metrics.LOG_WRITE, () -> {
+            List<Task> added = new ArrayList<>(tasks.size());
+            for (Task task : tasks) {
+                added.add(new Task(nextId++, task.getDescription(), task.getDue(), task.getPriority(), task.getStatus(),
+                    task.isRecurring()));
+            }
+            append(added, List.of());
+            Metrics.LOG_WRITE.addRows(added.size());
+            return added.size();
+        });
+    }
+
+    // Writes a batch of coalesced edits as one frame. Edits to tasks that
+    // no longer exist are dropped, as an UPDATE would match nothing.
+    @Override
+    public CompletableFuture<Void> applyChanges(Collection<Change> changes) {
+        return submit(Metrics.LOG_WRITE, () -> {
+            List<Task> edited = new ArrayList<>();
+            List<Integer> removed = new ArrayList<>();
+            for (Change change : changes) {
+                Entry entry = live.get(change.id);
+                if (entry == null) {
+                    continue;
+                }
+                Task task = change.applyTo(entry.task);
+                if (task != null) {
+                    edited.add(task);
+                } else {
+                    removed.add(change.id);
+                }
+            }
+            append(edited, removed);
+            Metrics.LOG_WRITE.addRows(edited.size() + removed.size());
+            return null;
+        });
+    }
+
+    // The counterpart of TaskRepository.changesSince, answered from memory.
+    // The change counter doubles as the data version: this process holds
+    // the file's lock, so every write to it comes through here.
+    @Override
+    public CompletableFuture<Delta> changesSince(long since, long dataVersion, int limit) {
+        return submit(Metrics.LOG_READ, () -> {
+            promoteOverdue(System.currentTimeMillis());
+            if (since >= 0 && version == dataVersion) {
+                return null;
+            }
+            boolean full = since < 0 || since < prunedThrough;
+            List<Task> changed = new ArrayList<>();
+            List<Integer> removed = new ArrayList<>();
+            if (!full) {
+                NavigableMap<Long, Integer> newer = changes.tailMap(since, false);
+                for (int id : newer.values()) {
+                    Entry entry = live.get(id);
+                    if (entry == null) {
+                        removed.add(id);
+                    } else if (changed.size() == limit) {
+                        full = true;
+                        break;
+                    } else {
+                        changed.add(entry.task);
+                    }
+                }
+            }
+            if (full) {
+                removed.clear();
+                changed = sorted();
+                if (changed.size() > limit) {
+                    changed = new ArrayList<>(changed.subList(0, limit));
+                }
+            }
+            Metrics.LOG_READ.addRows(changed.size() + removed.size());
+            return new Delta(version, version, full, changed, removed);
+        });
+    }
+
+    // Pending tasks now due become overdue, as TaskRepository does before
+    // every read
+    private void promoteOverdue(long now) throws IOException {
+        List<Task> overdue = new ArrayList<>();
+        for (Task task : pending) {
+            if (task.getDue() >= now) {
+                break;
+            }
+            overdue.add(task.withStatus(Status.OVERDUE));
+        }
+        append(overdue, List.of());
+    }
+
+    @Override
+    public CompletableFuture<Integer> forEachTask(TaskSink sink) {
+        return submit(Metrics.LOG_READ, () -> {
+            List<Task> tasks = sorted();
+            for (Task task : tasks) {
+                sink.accept(task);
+            }
+            Metrics.LOG_READ.addRows(tasks.size());
+            return tasks.size();
+        });
+    }
+
+    private List<Task> sorted() {
+        List<Task> tasks = new ArrayList<>(live.size());
+        for (Entry entry : live.values()) {
+            tasks.add(entry.task);
+        }
+        tasks.sort(TaskViewIndex.LIST_ORDER);
+        return tasks;
+    }
+
+    // Reads and writes share one thread, so anything queued ahead of this
+    // has finished when it runs
+    @Override
+    public CompletableFuture<Void> afterPendingReads() {
+        return CompletableFuture.runAsync(() -> { }, executor);
+    }
+
+    // Appends one frame putting the given tasks and deleting the given ids,
+    // each at a new version, and applies it to memory. The length goes in
+    // last, so a frame is not seen on replay until it is whole.
+    private void append(List<Task> puts, List<Integer> deletes) throws IOException {
+        if (puts.isEmpty() && deletes.isEmpty()) {
+            return;
+        }
+        byte[][] descriptions = new byte[puts.size()][];
+        long length = 4;
+        for (int i = 0; i < descriptions.length; i++) {
+            descriptions[i] = puts.get(i).getDescription().getBytes(UTF_8);
+            length += PUT_BYTES + descriptions[i].length;
+        }
+        length += (long) deletes.size() * DELETE_BYTES;
+        ensureCapacity(end + FRAME_OVERHEAD + length);
+
+        ByteBuffer body = map.slice(end + 4, (int) length);
+        body.putInt(descriptions.length + deletes.size());
+        for (int i = 0; i < descriptions.length; i++) {
+            Task task = puts.get(i);
+            writeTask(body, task, ++version, descriptions[i]);
+            put(task, version, PUT_BYTES + descriptions[i].length);
+        }
+        for (int id : deletes) {
+            body.put(DELETE).putInt(id).putLong(++version);
+            removed(id, version);
+        }
+        crc.reset();
+        crc.update(body.flip());
+        map.putInt(end + 4 + (int) length, (int) crc.getValue());
+        map.putInt(end, (int) length);
+        end += FRAME_OVERHEAD + (int) length;
+        dirty = true;
+
+        if (!compacting && !executor.isShutdown() && end > COMPACT_MIN_BYTES && end > 2 * compactFailedAt
+                && end > 2 * (HEADER_BYTES + liveBytes + (long) FRAME_OVERHEAD * live.size())) {
+            compacting = true;
+            executor.execute(this::compact);
+        }
+    }
+
+    private static void writeTask(ByteBuffer out, Task task, long at, byte[] description) {
+        out.put(PUT).putInt(task.getId()).putLong(at)
+            .putLong(task.getDue())
+            .put((byte) task.getPriority().code)
+            .put((byte) task.getStatus().code)
+            .put((byte) (task.isRecurring() ? 1 : 0))
+            .putInt(description.length).put(description);
+    }
+
+    // Grows the mapping by doubling until it holds the given offset
+    private void ensureCapacity(long needed) throws IOException {
+        long capacity = map.capacity();
+        if (needed <= capacity) {
+            return;
+        }
+        while (capacity < needed) {
+            capacity *= 2;
+        }
+        if (needed > Integer.MAX_VALUE) {
+            throw new IOException(file + " is full");
+        }
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(capacity, Integer.MAX_VALUE));
+    }
+
+    private Path sibling(String suffix) {
+        return file.resolveSibling(file.getFileName() + suffix);
+    }
+
+    private static ByteBuffer header(int nextId, long prunedThrough, long version) {
+        return ByteBuffer.allocate(HEADER_BYTES)
+            .putInt(MAGIC).putInt(FORMAT).putInt(nextId).putLong(prunedThrough).putLong(version)
+            .rewind();
+    }
+
+    // Where the move cannot be atomic (or the mapped file cannot be
+    // replaced) the old log is kept as it is. Runs on the executor, since it
+    // reads the live map and swaps the mapping; work queued behind it waits.
+    private void compact() {
+        long start = System.nanoTime();
+        try {
+            rewrite();
+            compactFailedAt = 0;
+            Metrics.LOG_COMPACT.addRows(live.size());
+        } catch (IOException e) {
+            System.err.println("Could not compact " + file + ": " + e.getMessage());
+            compactFailedAt = end;
+            try {
+                Files.deleteIfExists(sibling(".compact"));
+            } catch (IOException ignored) {
+                // Overwritten by the next attempt
+            }
+        } finally {
+            compacting = false;
+            Metrics.LOG_COMPACT.recordSince(start);
+        }
+    }
+
+    // Writes the live tasks in the current format to a new file, forces it
+    // and moves it over the log. Tombstones are dropped, so refreshes from
+    // before the newest of them reload in full.
+    private void rewrite() throws IOException {
+        Path temp = sibling(".compact");
+        long dropped = prunedThrough;
+        for (long at : deleted.values()) {
+            dropped = Math.max(dropped, at);
+        }
+        int size;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            out.write(header(nextId, dropped, version));
+            size = HEADER_BYTES + writeFrames(out);
+            out.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        channel.close();
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_CAPACITY, 2L * size));
+        end = size;
+        dirty = false;
+        for (long at : deleted.values()) {
+            changes.remove(at);
+        }
+        deleted.clear();
+        prunedThrough = dropped;
+    }
+
+    // The live tasks at their current versions, in frames of about
+    // COMPACT_FRAME_BYTES; returns the bytes written
+    private int writeFrames(FileChannel out) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(COMPACT_FRAME_BYTES);
+        int written = 0;
+        int count = 0;
+        frame.position(8);
+        for (Entry entry : live.values()) {
+            byte[] description = entry.task.getDescription().getBytes(UTF_8);
+            int size = PUT_BYTES + description.length;
+            if (frame.remaining() < size + 4) {
+                written += writeFrame(out, frame, count);
+                count = 0;
+                if (frame.capacity() < size + 12) {
+                    frame = ByteBuffer.allocate(size + 12);
+                }
+                frame.clear().position(8);
+            }
+            writeTask(frame, entry.task, entry.version, description);
+            count++;
+        }
+        return written + writeFrame(out, frame, count);
+    }
+
+    private int writeFrame(FileChannel out, ByteBuffer frame, int count) throws IOException {
+        if (count == 0) {
+            return 0;
+        }
+        int length = frame.position() - 4;
+        frame.putInt(0, length).putInt(4, count);
+        crc.reset();
+        crc.update(frame.array(), 4, length);
+        frame.putInt((int) crc.getValue()).flip();
+        while (frame.hasRemaining()) {
+            out.write(frame);
+        }
+        return FRAME_OVERHEAD + length;
+    }
+
+    private void force() {
+        try {
+            if (dirty) {
+                map.force();
+                dirty = false;
+            }
+        } catch (RuntimeException e) {
+            // Retried on the next tick
+            System.err.println("Could not sync " + file + ": " + e.getMessage());
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Metric metric, Callable<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                return work.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                metric.recordSince(start);
+            }
+        }, executor);
+    }
+
+    // Lets queued work drain, forces the log and releases the file
+    @Override
+    public void close() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                if (channel != null) {
+                    force();
+                    channel.close();
+                }
+                if (lock != null) {
+                    lock.release();
+                    lockChannel.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
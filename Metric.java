@@ -0,0 +1,42 @@
+package src;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// One instrumented operation: a latency histogram plus the number of rows
+// it has read or written. Recording never allocates.
+final class Metric {
+    final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rows = new LongAdder();
+
+    Metric(String name) {
+        this.name = name;
+    }
+
+    // Records the time since start, a System.nanoTime() reading
+    void recordSince(long start) {
+        latency.record(System.nanoTime() - start);
+    }
+
+    void recordSince(long start, int rowCount) {
+        recordSince(start);
+        rows.add(rowCount);
+    }
+
+    void addRows(int rowCount) {
+        rows.add(rowCount);
+    }
+
+    LatencyHistogram latency() {
+        return latency;
+    }
+
+    long rows() {
+        return rows.sum();
+    }
+
+    void reset() {
+        latency.reset();
+        rows.reset();
+    }
+}
@@ -0,0 +1,145 @@
+package src;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Built-in instrumentation for the hot paths: every SQL statement, the
+// UI refreshes and row painting, and the reminder scheduler. Exposed over
+// JMX (todolist:type=Metrics) and, with -Dtodo.metrics.overlay=true, as a
+// one-line summary in the status bar.
+final class Metrics implements MetricsMXBean {
+    static final String OBJECT_NAME = "todolist:type=Metrics";
+    static final boolean OVERLAY = Boolean.getBoolean("todo.metrics.overlay");
+
+    private static final List<Metric> ALL = new ArrayList<>();
+
+    // Statements, timed on the database threads while they run
+    static final Metric SQL_OPEN = register("sql.open");
+    static final Metric SQL_INDEXES = register("sql.indexes");
+    static final Metric SQL_LOAD_ALL = register("sql.loadAll");
+    static final Metric SQL_DELTA = register("sql.delta");
+    static final Metric SQL_COUNT = register("sql.count");
+    static final Metric SQL_STATS = register("sql.stats");
+    static final Metric SQL_LOAD_PAGE = register("sql.loadPage");
+    static final Metric SQL_GET = register("sql.get");
+    static final Metric SQL_DUE_SCAN = register("sql.dueScan");
+    static final Metric SQL_SEARCH = register("sql.search");
+    static final Metric SQL_PROMOTE_OVERDUE = register("sql.promoteOverdue");
+    static final Metric SQL_ADD = register("sql.add");
+    static final Metric SQL_INSERT_BATCH = register("sql.insertBatch");
+    static final Metric SQL_APPLY_CHANGES = register("sql.applyChanges");
+    static final Metric SQL_EXPORT = register("sql.export");
+    static final Metric SQL_ARCHIVE = register("sql.archive");
+    static final Metric SQL_SERIES = register("sql.series");
+
+    // The append-only log storage (LogTaskStorage), timed on its thread:
+    // replaying the file on open, in-memory reads, appends and compactions
+    static final Metric LOG_REPLAY = register("log.replay");
+    static final Metric LOG_READ = register("log.read");
+    static final Metric LOG_WRITE = register("log.write");
+    static final Metric LOG_COMPACT = register("log.compact");
+
+    // From the user's action to the list showing the result, and the EDT
+    // time spent updating the list and painting one row
+    static final Metric UI_REFRESH = register("ui.refresh");
+    static final Metric UI_ADD_TASK = register("ui.addTask");
+    static final Metric UI_SEARCH = register("ui.search");
+    static final Metric UI_VIEW = register("ui.view");
+    static final Metric UI_LIST_APPLY = register("ui.listApply");
+    static final Metric UI_PAINT_ROW = register("ui.paintRow");
+    // From process launch to the window's first paint and to the first
+    // tasks in the list, recorded once per run
+    static final Metric UI_FIRST_PAINT = register("ui.firstPaint");
+    static final Metric UI_FIRST_TASKS = register("ui.firstTasks");
+    // Stalls reported by EdtWatchdog, when it is enabled
+    static final Metric UI_EDT_STALL = register("ui.edtStall");
+
+    // Local API requests, from arrival to the last byte of the response
+    static final Metric HTTP_REQUEST = register("http.request");
+
+    // Reconciling the schedule with a reload, and each wakeup's scan
+    static final Metric NOTIFIER_SYNC = register("notifier.sync");
+    static final Metric NOTIFIER_FIRE = register("notifier.fire");
+
+    private Metrics() {
+    }
+
+    private static Metric register(String name) {
+        Metric metric = new Metric(name);
+        ALL.add(metric);
+        return metric;
+    }
+
+    static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Metrics(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Already registered by an earlier window in this JVM
+        } catch (JMException e) {
+            System.err.println("Metrics are not available over JMX: " + e.getMessage());
+        }
+    }
+
+    // p99 of a refresh, the slowest statement and a row paint
+    static String overlayText() {
+        Metric slowest = null;
+        for (Metric metric : ALL) {
+            if (metric.name.startsWith("sql.")
+                    && (slowest == null || p99(metric) > p99(slowest))) {
+                slowest = metric;
+            }
+        }
+        return "p99 refresh " + duration(p99(UI_REFRESH))
+            + " · " + slowest.name + " " + duration(p99(slowest))
+            + " · paint " + duration(p99(UI_PAINT_ROW));
+    }
+
+    @Override
+    public List<MetricSnapshot> getMetrics() {
+        List<MetricSnapshot> snapshots = new ArrayList<>(ALL.size());
+        for (Metric metric : ALL) {
+            LatencyHistogram latency = metric.latency();
+            snapshots.add(new MetricSnapshot(metric.name, latency.count(), metric.rows(),
+                latency.mean() / 1000, latency.percentile(0.5) / 1000,
+                latency.percentile(0.99) / 1000, latency.max() / 1000));
+        }
+        return Collections.unmodifiableList(snapshots);
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder out = new StringBuilder(String.format(Locale.ROOT,
+            "%-22s %8s %10s %10s %10s %10s%n", "metric", "count", "rows", "p50", "p99", "max"));
+        for (Metric metric : ALL) {
+            LatencyHistogram latency = metric.latency();
+            out.append(String.format(Locale.ROOT, "%-22s %8d %10d %10s %10s %10s%n",
+                metric.name, latency.count(), metric.rows(), duration(latency.percentile(0.5)),
+                duration(latency.percentile(0.99)), duration(latency.max())));
+        }
+        return out.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (Metric metric : ALL) {
+            metric.reset();
+        }
+    }
+
+    private static long p99(Metric metric) {
+        return metric.latency().percentile(0.99);
+    }
+
+    private static String duration(long nanos) {
+        if (nanos < 1_000_000) {
+            return nanos / 1000 + " µs";
+        }
+        return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+    }
+}
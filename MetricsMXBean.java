@@ -0,0 +1,43 @@
+package src;
+
+import java.util.List;
+
+// Management interface for Metrics, shown in jconsole under todolist:type=Metrics.
+// Times are in microseconds.
+public interface MetricsMXBean {
+    List<MetricSnapshot> getMetrics();
+
+    // The same figures as a plain-text table
+    String getSummary();
+
+    void reset();
+
+    final class MetricSnapshot {
+        private final String name;
+        private final long count;
+        private final long rows;
+        private final long meanMicros;
+        private final long p50Micros;
+        private final long p99Micros;
+        private final long maxMicros;
+
+        MetricSnapshot(String name, long count, long rows, long meanMicros,
+                       long p50Micros, long p99Micros, long maxMicros) {
+            this.name = name;
+            this.count = count;
+            this.rows = rows;
+            this.meanMicros = meanMicros;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+        }
+
+        public String getName() { return name; }
+        public long getCount() { return count; }
+        public long getRows() { return rows; }
+        public long getMeanMicros() { return meanMicros; }
+        public long getP50Micros() { return p50Micros; }
+        public long getP99Micros() { return p99Micros; }
+        public long getMaxMicros() { return maxMicros; }
+    }
+}
@@ -0,0 +1,36 @@
+package src;
+
+// Stored in the tasks table by its code
+enum Priority {
+    LOW(0, "Low"),
+    MEDIUM(1, "Medium"),
+    HIGH(2, "High");
+
+    private static final Priority[] BY_CODE = values();
+
+    final int code;
+    final String label;
+
+    Priority(int code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    static Priority fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : MEDIUM;
+    }
+
+    static Priority fromLabel(String label) {
+        for (Priority priority : BY_CODE) {
+            if (priority.label.equalsIgnoreCase(label)) {
+                return priority;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,101 @@
+package src;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+// How a recurring task repeats: every N days, weeks or months, or on every
+// weekday. Stored in the series table as the unit's code and the count.
+final class Recurrence {
+    enum Unit {
+        DAYS(0), WEEKDAYS(1), WEEKS(2), MONTHS(3);
+
+        private static final Unit[] BY_CODE = values();
+
+        final int code;
+
+        Unit(int code) {
+            this.code = code;
+        }
+
+        static Unit fromCode(int code) {
+            return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : DAYS;
+        }
+    }
+
+    final Unit unit;
+    final int every;
+
+    Recurrence(Unit unit, int every) {
+        this.unit = unit;
+        this.every = unit == Unit.WEEKDAYS ? 1 : Math.max(1, every);
+    }
+
+    // The first occurrence strictly after the given time, for a series whose
+    // first occurrence is the anchor. Occurrences keep the anchor's local
+    // time of day, so they do not drift across daylight saving changes, and
+    // monthly ones its day of the month, clamped in shorter months.
+    long nextAfter(long anchor, long after) {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDateTime start = LocalDateTime.ofInstant(Instant.ofEpochMilli(anchor), zone);
+        if (anchor > after) {
+            return anchor;
+        }
+        LocalDateTime limit = LocalDateTime.ofInstant(Instant.ofEpochMilli(after), zone);
+
+        if (unit == Unit.WEEKDAYS) {
+            LocalDateTime next = start.plusDays(ChronoUnit.DAYS.between(start, limit));
+            while (millis(next, zone) <= after || isWeekend(next.getDayOfWeek())) {
+                next = next.plusDays(1);
+            }
+            return millis(next, zone);
+        }
+
+        // Jump straight to the occurrence at or just before the limit,
+        // then step past it
+        long step = unitsBetween(start, limit) / every;
+        long next = millis(occurrence(start, step), zone);
+        while (next <= after) {
+            next = millis(occurrence(start, ++step), zone);
+        }
+        return next;
+    }
+
+    private long unitsBetween(LocalDateTime start, LocalDateTime limit) {
+        switch (unit) {
+            case WEEKS: return ChronoUnit.WEEKS.between(start, limit);
+            case MONTHS: return ChronoUnit.MONTHS.between(start, limit);
+            default: return ChronoUnit.DAYS.between(start, limit);
+        }
+    }
+
+    // Counted from the anchor each time, so a clamped month end does not
+    // carry over into later months
+    private LocalDateTime occurrence(LocalDateTime start, long step) {
+        switch (unit) {
+            case WEEKS: return start.plusWeeks(step * every);
+            case MONTHS: return start.plusMonths(step * every);
+            default: return start.plusDays(step * every);
+        }
+    }
+
+    private static boolean isWeekend(DayOfWeek day) {
+        return day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY;
+    }
+
+    private static long millis(LocalDateTime time, ZoneId zone) {
+        return time.atZone(zone).toInstant().toEpochMilli();
+    }
+
+    @Override
+    public String toString() {
+        switch (unit) {
+            case WEEKDAYS: return "Weekdays";
+            case WEEKS: return every == 1 ? "Weekly" : "Every " + every + " weeks";
+            case MONTHS: return every == 1 ? "Monthly" : "Every " + every + " months";
+            default: return every == 1 ? "Daily" : "Every " + every + " days";
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package src;
+
+import java.sql.*;
+import java.text.ParseException;
+import java.util.Objects;
+
+// Brings tasks.db up to the current schema, one step per PRAGMA user_version.
+// Each step runs in its own transaction together with the version bump, so
+// an interrupted migration is simply retried on the next start.
+final class SchemaMigrator {
+    static final int CURRENT_VERSION = 6;
+
+    private SchemaMigrator() {
+    }
+
+    static void migrate(Connection conn) throws SQLException {
+        int version = userVersion(conn);
+        while (version < CURRENT_VERSION) {
+            int next = version + 1;
+            conn.setAutoCommit(false);
+            try {
+                switch (next) {
+                    case 1: typedSchema(conn); break;
+                    case 2: searchIndex(conn); break;
+                    case 3: archiveTable(conn); break;
+                    case 4: recurringSeries(conn); break;
+                    case 5: changeTracking(conn); break;
+                    case 6: taskStats(conn); break;
+                    default: throw new SQLException("No migration to schema version " + next);
+                }
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("PRAGMA user_version = " + next);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            version = next;
+        }
+    }
+
+    // The list and status/due range indexes, the search index triggers, the
+    // change tracking triggers and the statistics triggers. Bulk imports
+    // drop them and build them again afterwards, which is far cheaper than
+    // maintaining them row by row; open() recreates any left missing by an
+    // interrupted import.
+    static void createIndexes(Connection conn) throws SQLException {
+        createListIndexes(conn);
+        createSearchTriggers(conn);
+        createChangeTracking(conn);
+        createStatsTriggers(conn);
+    }
+
+    static void dropIndexes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP INDEX IF EXISTS idx_tasks_due");
+            stmt.execute("DROP INDEX IF EXISTS idx_tasks_status_due");
+            stmt.execute("DROP TRIGGER IF EXISTS tasks_fts_insert");
+            stmt.execute("DROP TRIGGER IF EXISTS tasks_fts_delete");
+            stmt.execute("DROP TRIGGER IF EXISTS tasks_fts_update");
+            stmt.execute("DROP INDEX IF EXISTS idx_tasks_version");
+            stmt.execute("DROP TRIGGER IF EXISTS tasks_version_insert");
+            stmt.execute("DROP TRIGGER IF EXISTS tasks_version_update");
+            stmt.execute("DROP TRIGGER IF EXISTS tasks_version_delete");
+            stmt.execute("DROP TRIGGER IF EXISTS tasks_stats_insert");
+            stmt.execute("DROP TRIGGER IF EXISTS tasks_stats_update");
+            stmt.execute("DROP TRIGGER IF EXISTS tasks_stats_delete");
+        }
+    }
+
+    private static void createListIndexes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_tasks_due ON tasks(due, id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_tasks_status_due ON tasks(status, due)");
+        }
+    }
+
+    // Keeps tasks_fts in step with tasks. Only description edits touch the
+    // search index. Rows written while the triggers were missing are picked
+    // up by rebuilding the index from tasks.
+    private static void createSearchTriggers(Connection conn) throws SQLException {
+        if (objectCount(conn, "trigger", "tasks_fts_%") == 3) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS tasks_fts_insert AFTER INSERT ON tasks BEGIN " +
+                         "INSERT INTO tasks_fts(rowid, task) VALUES (new.id, new.task); END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS tasks_fts_delete AFTER DELETE ON tasks BEGIN " +
+                         "INSERT INTO tasks_fts(tasks_fts, rowid, task) VALUES ('delete', old.id, old.task); END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS tasks_fts_update AFTER UPDATE OF task ON tasks BEGIN " +
+                         "INSERT INTO tasks_fts(tasks_fts, rowid, task) VALUES ('delete', old.id, old.task); " +
+                         "INSERT INTO tasks_fts(rowid, task) VALUES (new.id, new.task); END");
+            stmt.execute("INSERT INTO tasks_fts(tasks_fts) VALUES ('rebuild')");
+        }
+    }
+
+    // Stamps every insert and every edit of a listed column with the next
+    // value of sync_state's counter, and leaves a tombstone for every
+    // delete, so a refresh can read just what changed since the counter
+    // value it last saw. Rows written while the triggers were missing are
+    // still at version 0 and are stamped together before the index is
+    // built.
+    private static void createChangeTracking(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (objectCount(conn, "trigger", "tasks_version_%") == 3) {
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_tasks_version ON tasks(version)");
+                return;
+            }
+            stmt.execute("UPDATE sync_state SET version = version + 1");
+            stmt.execute("UPDATE tasks SET version = (SELECT version FROM sync_state) WHERE version = 0");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_tasks_version ON tasks(version)");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS tasks_version_insert AFTER INSERT ON tasks BEGIN " +
+                         "UPDATE sync_state SET version = version + 1; " +
+                         "UPDATE tasks SET version = (SELECT version FROM sync_state) WHERE id = new.id; END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS tasks_version_update " +
+                         "AFTER UPDATE OF task, due, priority, status, series_id ON tasks BEGIN " +
+                         "UPDATE sync_state SET version = version + 1; " +
+                         "UPDATE tasks SET version = (SELECT version FROM sync_state) WHERE id = new.id; END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS tasks_version_delete AFTER DELETE ON tasks BEGIN " +
+                         "UPDATE sync_state SET version = version + 1; " +
+                         "INSERT OR REPLACE INTO tasks_deleted(id, version, deleted_at) " +
+                         "VALUES (old.id, (SELECT version FROM sync_state), unixepoch() * 1000); END");
+        }
+    }
+
+    // Keeps task_counts in step with tasks: each insert and delete moves one
+    // count, and a status or priority edit moves one from the old cell to
+    // the new. A status change to done also counts towards today's
+    // completions. When the triggers were missing (a bulk import), the
+    // counts are rebuilt with one pass over tasks.
+    private static void createStatsTriggers(Connection conn) throws SQLException {
+        if (objectCount(conn, "trigger", "tasks_stats_%") == 3) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM task_counts");
+            stmt.execute("INSERT INTO task_counts(status, priority, count) " +
+                         "SELECT status, priority, COUNT(*) FROM tasks GROUP BY status, priority");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS tasks_stats_insert AFTER INSERT ON tasks BEGIN " +
+                         "INSERT INTO task_counts(status, priority, count) VALUES (new.status, new.priority, 1) " +
+                         "ON CONFLICT(status, priority) DO UPDATE SET count = count + 1; END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS tasks_stats_delete AFTER DELETE ON tasks BEGIN " +
+                         "UPDATE task_counts SET count = count - 1 " +
+                         "WHERE status = old.status AND priority = old.priority; END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS tasks_stats_update AFTER UPDATE OF status, priority ON tasks " +
+                         "WHEN new.status != old.status OR new.priority != old.priority BEGIN " +
+                         "UPDATE task_counts SET count = count - 1 " +
+                         "WHERE status = old.status AND priority = old.priority; " +
+                         "INSERT INTO task_counts(status, priority, count) VALUES (new.status, new.priority, 1) " +
+                         "ON CONFLICT(status, priority) DO UPDATE SET count = count + 1; " +
+                         "INSERT INTO completions(day, count) " +
+                         "SELECT date('now', 'localtime'), 1 " +
+                         "WHERE new.status = " + Status.DONE.code + " AND old.status != " + Status.DONE.code + " " +
+                         "ON CONFLICT(day) DO UPDATE SET count = count + 1; END");
+        }
+    }
+
+    private static int userVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // v1: due as INTEGER epoch millis, priority and status as small codes,
+    // and indexes for the ordered list and the status/due range queries.
+    // Databases from before versioning keep their rows, converted.
+    private static void typedSchema(Connection conn) throws SQLException {
+        boolean legacy = tableExists(conn, "tasks");
+        try (Statement stmt = conn.createStatement()) {
+            if (legacy) {
+                stmt.execute("ALTER TABLE tasks RENAME TO tasks_legacy");
+            }
+            stmt.execute("CREATE TABLE tasks (" +
+                         "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                         "task TEXT NOT NULL, " +
+                         "due INTEGER NOT NULL, " +
+                         "priority INTEGER NOT NULL, " +
+                         "status INTEGER NOT NULL, " +
+                         "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        }
+        createListIndexes(conn);
+        if (!legacy) {
+            return;
+        }
+
+        // The earliest tasks.db files have no created_at column
+        String createdAt = columnExists(conn, "tasks_legacy", "created_at") ? "created_at" : "NULL";
+        long migratedAt = System.currentTimeMillis();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "SELECT id, task, due, priority, status, " + createdAt + " AS created_at, " +
+                 "CAST(strftime('%s', " + createdAt + ") AS INTEGER) * 1000 AS created_millis " +
+                 "FROM tasks_legacy");
+             PreparedStatement insert = conn.prepareStatement(
+                 "INSERT INTO tasks(id, task, due, priority, status, created_at) " +
+                 "VALUES (?, ?, ?, ?, ?, COALESCE(?, CURRENT_TIMESTAMP))")) {
+            int pending = 0;
+            while (rs.next()) {
+                Priority priority = Priority.fromLabel(rs.getString("priority"));
+                Status status = Status.fromLabel(rs.getString("status"));
+                long createdMillis = rs.getLong("created_millis");
+                if (rs.wasNull()) {
+                    createdMillis = migratedAt;
+                }
+                insert.setInt(1, rs.getInt("id"));
+                insert.setString(2, Objects.toString(rs.getString("task"), ""));
+                insert.setLong(3, legacyDue(rs.getString("due"), createdMillis));
+                insert.setInt(4, (priority != null ? priority : Priority.MEDIUM).code);
+                insert.setInt(5, (status != null ? status : Status.PENDING).code);
+                insert.setString(6, rs.getString("created_at"));
+                insert.addBatch();
+                if (++pending == 500) {
+                    insert.executeBatch();
+                    pending = 0;
+                }
+            }
+            insert.executeBatch();
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE tasks_legacy");
+        }
+    }
+
+    // v2: an external-content FTS5 index over task descriptions, with 2- and
+    // 3-character prefix indexes so search-as-you-type queries stay cheap
+    private static void searchIndex(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS tasks_fts USING fts5(" +
+                         "task, content='tasks', content_rowid='id', " +
+                         "tokenize='unicode61 remove_diacritics 2', prefix='2 3')");
+        }
+        createSearchTriggers(conn);
+    }
+
+    // v3: finished tasks past the archive age are moved here by TaskArchiver,
+    // keeping their ids, so the hot table and its indexes only hold work
+    // that is still current. Ids are never reused, since tasks is
+    // AUTOINCREMENT.
+    private static void archiveTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS tasks_archive (" +
+                         "id INTEGER PRIMARY KEY, " +
+                         "task TEXT NOT NULL, " +
+                         "due INTEGER NOT NULL, " +
+                         "priority INTEGER NOT NULL, " +
+                         "status INTEGER NOT NULL, " +
+                         "created_at TIMESTAMP, " +
+                         "archived_at INTEGER NOT NULL)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_tasks_archive_due ON tasks_archive(due, id)");
+        }
+    }
+
+    // v4: recurring tasks. A series holds the rule once; its occurrences are
+    // ordinary tasks rows pointing back at it, and at most one is open at a
+    // time. next_due is set only while the next occurrence has not been
+    // created yet because it lies beyond the lookahead window.
+    private static void recurringSeries(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS series (" +
+                         "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                         "task TEXT NOT NULL, " +
+                         "priority INTEGER NOT NULL, " +
+                         "unit INTEGER NOT NULL, " +
+                         "every INTEGER NOT NULL, " +
+                         "anchor INTEGER NOT NULL, " +
+                         "next_due INTEGER, " +
+                         "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_series_next_due ON series(next_due) " +
+                         "WHERE next_due IS NOT NULL");
+            if (!columnExists(conn, "tasks", "series_id")) {
+                stmt.execute("ALTER TABLE tasks ADD COLUMN series_id INTEGER");
+            }
+            if (!columnExists(conn, "tasks_archive", "series_id")) {
+                stmt.execute("ALTER TABLE tasks_archive ADD COLUMN series_id INTEGER");
+            }
+            // Partial, so plain tasks (and bulk imports) never touch it
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_tasks_series ON tasks(series_id, id) " +
+                         "WHERE series_id IS NOT NULL");
+        }
+    }
+
+    // v5: change tracking for delta refreshes. sync_state is a single row
+    // holding the last version handed out, and the newest version whose
+    // tombstone has been pruned: a refresh from before that one cannot
+    // know every delete and has to reload in full.
+    private static void changeTracking(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (!columnExists(conn, "tasks", "version")) {
+                stmt.execute("ALTER TABLE tasks ADD COLUMN version INTEGER NOT NULL DEFAULT 0");
+            }
+            stmt.execute("CREATE TABLE IF NOT EXISTS sync_state (" +
+                         "id INTEGER PRIMARY KEY CHECK (id = 0), " +
+                         "version INTEGER NOT NULL, " +
+                         "pruned_through INTEGER NOT NULL)");
+            stmt.execute("INSERT OR IGNORE INTO sync_state(id, version, pruned_through) VALUES (0, 0, 0)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS tasks_deleted (" +
+                         "id INTEGER PRIMARY KEY, " +
+                         "version INTEGER NOT NULL, " +
+                         "deleted_at INTEGER NOT NULL)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_tasks_deleted_version ON tasks_deleted(version)");
+        }
+        createChangeTracking(conn);
+    }
+
+    // v6: summary tables for the statistics dashboard, so it reads a dozen
+    // rows instead of counting over tasks. task_counts holds the number of
+    // tasks in each status and priority; completions the tasks marked done
+    // on each local day, from now on (when a task was finished is not
+    // recorded anywhere else).
+    private static void taskStats(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS task_counts (" +
+                         "status INTEGER NOT NULL, " +
+                         "priority INTEGER NOT NULL, " +
+                         "count INTEGER NOT NULL, " +
+                         "PRIMARY KEY (status, priority)) WITHOUT ROWID");
+            stmt.execute("CREATE TABLE IF NOT EXISTS completions (" +
+                         "day TEXT PRIMARY KEY, " +
+                         "count INTEGER NOT NULL) WITHOUT ROWID");
+        }
+        createStatsTriggers(conn);
+    }
+
+    // Rows with an unreadable due date fall back to when they were created
+    private static long legacyDue(String due, long createdMillis) {
+        if (due == null) {
+            return createdMillis;
+        }
+        try {
+            return DueDates.parse(due);
+        } catch (ParseException e) {
+            return createdMillis;
+        }
+    }
+
+    private static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static int objectCount(Connection conn, String type, String namePattern) throws SQLException {
+        try (PreparedStatement pst = conn.prepareStatement(
+                "SELECT COUNT(*) FROM sqlite_master WHERE type=? AND name LIKE ?")) {
+            pst.setString(1, type);
+            pst.setString(2, namePattern);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private static boolean tableExists(Connection conn, String name) throws SQLException {
+        try (PreparedStatement pst = conn.prepareStatement(
+                "SELECT 1 FROM sqlite_master WHERE type='table' AND name=?")) {
+            pst.setString(1, name);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Orders search matches: whole-word hits before prefix hits, then the
+// task whose first hit comes earliest, then the shorter description, then
+// list order. Scores only look at the candidates FTS5 already matched.
+final class SearchRanking {
+    private SearchRanking() {
+    }
+
+    static List<Task> top(List<Task> matches, String[] words, int limit) {
+        int n = matches.size();
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            // Higher is better: score, then earliest hit, then shortness;
+            // the low bits hold the candidate's index for a stable order
+            Task task = matches.get(i);
+            String text = task.getDescription().toLowerCase(Locale.ROOT);
+            int score = 0;
+            int first = Integer.MAX_VALUE;
+            for (String word : words) {
+                int at = wordStart(text, word);
+                if (at >= 0) {
+                    score += isWholeWord(text, at, word.length()) ? 2 : 1;
+                    first = Math.min(first, at);
+                }
+            }
+            int earliness = 0xFFF - Math.min(first, 0xFFF);
+            int shortness = 0xFFF - Math.min(text.length(), 0xFFF);
+            keys[i] = ((long) score << 44) | ((long) earliness << 32) | ((long) shortness << 20) | (0xFFFFF - i);
+        }
+        Arrays.sort(keys);
+
+        List<Task> sorted = new ArrayList<>(Math.min(limit, n));
+        for (int i = n - 1; i >= 0 && sorted.size() < limit; i--) {
+            sorted.add(matches.get(0xFFFFF - (int) (keys[i] & 0xFFFFF)));
+        }
+        return sorted;
+    }
+
+    // Where a word of the text starts with the given word, or -1
+    private static int wordStart(String text, String word) {
+        for (int at = text.indexOf(word); at >= 0; at = text.indexOf(word, at + 1)) {
+            if (at == 0 || !Character.isLetterOrDigit(text.charAt(at - 1))) {
+                return at;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWholeWord(String text, int at, int length) {
+        int end = at + length;
+        return end == text.length() || !Character.isLetterOrDigit(text.charAt(end));
+    }
+}
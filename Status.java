@@ -0,0 +1,42 @@
+package src;
+
+// Stored in the tasks table by its code
+enum Status {
+    PENDING(0, "Pending"),
+    OVERDUE(1, "Overdue"),
+    DONE(2, "Done"),
+    DISMISSED(3, "Dismissed");
+
+    private static final Status[] BY_CODE = values();
+
+    final int code;
+    final String label;
+
+    Status(int code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    // Done and dismissed tasks no longer need reminders
+    boolean isOpen() {
+        return this == PENDING || this == OVERDUE;
+    }
+
+    static Status fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : PENDING;
+    }
+
+    static Status fromLabel(String label) {
+        for (Status status : BY_CODE) {
+            if (status.label.equalsIgnoreCase(label)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,53 @@
+package src;
+
+// One row of the tasks table, immutable. Priority and status are kept as
+// their one-byte codes, so with compressed oops an instance is 32 bytes
+// (header, id, due, description reference, the two codes and the
+// recurring flag, which fits in what would otherwise be padding) rather
+// than the 40 two enum references would need. Edits produce a new instance.
+final class Task {
+    private final int id;
+    private final long due;
+    private final String description;
+    private final byte priority;
+    private final byte status;
+    // An occurrence of a recurring series
+    private final boolean recurring;
+
+    public Task(int id, String description, long due, Priority priority, Status status) {
+        this(id, description, due, priority, status, false);
+    }
+
+    public Task(int id, String description, long due, Priority priority, Status status, boolean recurring) {
+        this.id = id;
+        this.description = description;
+        this.due = due;
+        this.priority = (byte) priority.code;
+        this.status = (byte) status.code;
+        this.recurring = recurring;
+    }
+
+    public int getId() { return id; }
+    public String getDescription() { return description; }
+    public long getDue() { return due; }
+    public Priority getPriority() { return Priority.fromCode(priority); }
+    public Status getStatus() { return Status.fromCode(status); }
+    public boolean isRecurring() { return recurring; }
+
+    public Task withStatus(Status newStatus) {
+        return new Task(id, description, due, getPriority(), newStatus, recurring);
+    }
+
+    public Task withDue(long newDue) {
+        return new Task(id, description, newDue, getPriority(), getStatus(), recurring);
+    }
+
+    public Task withPriority(Priority newPriority) {
+        return new Task(id, description, due, newPriority, getStatus(), recurring);
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
@@ -0,0 +1,68 @@
+package src;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+// Moves done and dismissed tasks whose due date is more than
+// -Dtodo.archive.afterDays (default 30) in the past into tasks_archive, so
+// the list, refresh and reminder queries only touch current work. Runs
+// shortly after start and then every ten minutes, in small transactions
+// so other writes never wait long behind it. Each run also drops delete
+// tombstones older than a day. -Dtodo.archive=false turns it off.
+final class TaskArchiver implements AutoCloseable {
+    static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("todo.archive"));
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long FIRST_RUN = 60_000;
+    private static final long INTERVAL = 10 * 60_000;
+    private static final int BATCH = 500;
+
+    private final TaskRepository repository;
+    private final TaskStore store;
+    private final long age;
+    private final IntConsumer onArchived;
+    private final ScheduledThreadPoolExecutor timer;
+
+    // onArchived is called on the archiver thread with the number of tasks
+    // moved by a run that moved any
+    TaskArchiver(TaskRepository repository, TaskStore store, IntConsumer onArchived) {
+        this.repository = repository;
+        this.store = store;
+        this.age = Long.getLong("todo.archive.afterDays", 30) * DAY;
+        this.onArchived = onArchived;
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "todo-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.scheduleWithFixedDelay(this::run, FIRST_RUN, INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        try {
+            // Unsaved edits go first. Tasks edited again since are still in
+            // the store's log when the move runs and are skipped, so an
+            // edit never lands on a row that has just moved.
+            store.flush().join();
+            long cutoff = System.currentTimeMillis() - age;
+            int total = 0;
+            int moved;
+            do {
+                moved = repository.archiveFinished(cutoff, BATCH, store::isUnsaved).join();
+                total += moved;
+            } while (moved == BATCH && !timer.isShutdown());
+            repository.pruneTombstones(System.currentTimeMillis() - DAY).join();
+            if (total > 0) {
+                onArchived.accept(total);
+            }
+        } catch (RuntimeException e) {
+            // Tried again at the next interval
+            System.err.println("Error archiving tasks: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+}
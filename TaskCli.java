@@ -0,0 +1,413 @@
+package src;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+// Headless bulk import/export:
+//   ToDoListApp --import tasks.csv [--db tasks.db]
+//   ToDoListApp --export out.jsonl [--include-archived] [--db tasks.db]
+//   ToDoListApp --serve [--port 8321] [--db tasks.db]
+// CSV columns are task,due,priority,status (a header row may reorder them);
+// JSONL has one {"task":..,"due":..,"priority":..,"status":..} per line.
+// Imports stream through a bounded buffer into chunked batch transactions.
+final class TaskCli {
+    private static final int CHUNK = 5_000;
+    private static final int BUFFER = 4 * CHUNK;
+    // Inputs larger than this (roughly 100k rows) are loaded with the
+    // indexes dropped and rebuilt in one sorted pass at the end. That
+    // includes the change tracking triggers, so a window open on the same
+    // database meanwhile writes unversioned edits that other readers'
+    // refreshes miss; large imports are for when the app is closed.
+    private static final long DEFER_INDEXES_BYTES = 4L << 20;
+    private static final Task END = new Task(0, "", 0, Priority.LOW, Status.PENDING);
+
+    private TaskCli() {
+    }
+
+    static int run(String[] args, String defaultUrl) {
+        String importFile = null;
+        String exportFile = null;
+        String format = null;
+        String url = defaultUrl;
+        boolean includeArchived = false;
+        boolean serve = false;
+        int port = TaskServer.DEFAULT_PORT;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            boolean hasValue = i + 1 < args.length;
+            if ("--import".equals(arg) && hasValue) {
+                importFile = args[++i];
+            } else if ("--export".equals(arg) && hasValue) {
+                exportFile = args[++i];
+            } else if ("--format".equals(arg) && hasValue) {
+                format = args[++i].toLowerCase(Locale.ROOT);
+            } else if ("--serve".equals(arg)) {
+                serve = true;
+            } else if ("--port".equals(arg) && hasValue) {
+                try {
+                    port = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    return usage("Bad port: " + args[i]);
+                }
+            } else if ("--include-archived".equals(arg)) {
+                includeArchived = true;
+            } else if ("--db".equals(arg) && hasValue) {
+                url = "jdbc:sqlite:" + args[++i];
+            } else {
+                return usage("Unknown or incomplete option: " + arg);
+            }
+        }
+        int modes = (importFile != null ? 1 : 0) + (exportFile != null ? 1 : 0) + (serve ? 1 : 0);
+        if (modes != 1) {
+            return usage("Give exactly one of --import, --export or --serve");
+        }
+        if (serve) {
+            return serve(url, port);
+        }
+
+        Path file = Paths.get(importFile != null ? importFile : exportFile);
+        boolean csv = format != null ? "csv".equals(format) : file.toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+        if (format != null && !"csv".equals(format) && !"jsonl".equals(format)) {
+            return usage("Unknown format: " + format);
+        }
+
+        TaskRepository repository = new TaskRepository(url);
+        try {
+            repository.open().join();
+            if (importFile != null) {
+                importTasks(repository, file, csv);
+            } else {
+                exportTasks(repository, file, csv, includeArchived);
+            }
+            return 0;
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            System.err.println("Error: " + cause.getMessage());
+            return 1;
+        } finally {
+            repository.close();
+        }
+    }
+
+    private static int usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: ToDoListApp (--import FILE | --export FILE [--include-archived]) [--format csv|jsonl] [--db PATH]");
+        System.err.println("       ToDoListApp --serve [--port PORT] [--db PATH]");
+        return 2;
+    }
+
+    // Runs the local API until the process is stopped
+    private static int serve(String url, int port) {
+        TaskRepository repository = new TaskRepository(url);
+        TaskServer server;
+        try {
+            repository.open().join();
+            server = TaskServer.start(repository, port);
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            System.err.println("Error: " + cause.getMessage());
+            repository.close();
+            return 1;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            repository.close();
+        }, "todo-http-shutdown"));
+        System.out.println("Serving http://127.0.0.1:" + server.port() + "/tasks");
+        try {
+            new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    // The reader thread parses and validates; this thread hands full chunks
+    // to the repository, keeping one chunk in flight while the next fills
+    private static void importTasks(TaskRepository repository, Path file, boolean csv) throws Exception {
+        long start = System.nanoTime();
+        BlockingQueue<Task> buffer = new ArrayBlockingQueue<>(BUFFER);
+        int[] rejected = new int[1];
+        Exception[] failure = new Exception[1];
+
+        Thread reader = new Thread(() -> {
+            try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                if (csv) {
+                    readCsv(in, buffer, rejected);
+                } else {
+                    readJsonLines(in, buffer, rejected);
+                }
+            } catch (Exception e) {
+                failure[0] = e;
+            } finally {
+                try {
+                    buffer.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "todo-import-reader");
+        reader.setDaemon(true);
+        boolean deferIndexes = Files.size(file) > DEFER_INDEXES_BYTES;
+        if (deferIndexes) {
+            repository.dropIndexes().join();
+        }
+
+        int imported = 0;
+        try {
+            reader.start();
+            CompletableFuture<Integer> inFlight = CompletableFuture.completedFuture(0);
+            List<Task> chunk = new ArrayList<>(CHUNK);
+            while (true) {
+                Task task = buffer.take();
+                if (task != END) {
+                    chunk.add(task);
+                }
+                if (chunk.size() == CHUNK || (task == END && !chunk.isEmpty())) {
+                    imported += inFlight.join();
+                    inFlight = repository.insertAll(chunk);
+                    chunk = new ArrayList<>(CHUNK);
+                }
+                if (task == END) {
+                    break;
+                }
+            }
+            imported += inFlight.join();
+            reader.join();
+        } finally {
+            // Whether or not the import got through, so a failed one does
+            // not leave the database without its indexes and triggers.
+            // Queued behind any chunk still in flight on the writer.
+            if (deferIndexes) {
+                repository.createIndexes().join();
+            }
+        }
+        if (failure[0] != null) {
+            throw new IOException("Import stopped after " + imported + " tasks: " + failure[0].getMessage(), failure[0]);
+        }
+        report("Imported", imported, start);
+        if (rejected[0] > 0) {
+            System.out.println("Rejected " + rejected[0] + " invalid rows");
+        }
+    }
+
+    private static void exportTasks(TaskRepository repository, Path file, boolean csv, boolean includeArchived)
+            throws Exception {
+        long start = System.nanoTime();
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder(256);
+            if (csv) {
+                out.write("id,task,due,priority,status\n");
+            }
+            int exported = repository.forEachTask(task -> {
+                line.setLength(0);
+                if (csv) {
+                    line.append(task.getId()).append(',');
+                    appendCsv(line, task.getDescription()).append(',')
+                        .append(DueDates.format(task.getDue())).append(',')
+                        .append(task.getPriority().label).append(',')
+                        .append(task.getStatus().label);
+                } else {
+                    Json.appendTask(line, task);
+                }
+                line.append('\n');
+                out.append(line);
+            }, includeArchived).join();
+            report("Exported", exported, start);
+        }
+    }
+
+    private static void report(String action, int rows, long start) {
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        System.out.printf(Locale.ROOT, "%s %,d tasks in %.2f s (%,.0f rows/s)%n", action, rows, seconds, rows / seconds);
+    }
+
+    private static void readCsv(BufferedReader in, BlockingQueue<Task> buffer, int[] rejected)
+            throws IOException, InterruptedException {
+        int[] columns = {0, 1, 2, 3}; // task, due, priority, status
+        long record = 0;
+        List<String> fields;
+        while ((fields = readCsvRecord(in)) != null) {
+            record++;
+            if (record == 1 && isHeader(fields)) {
+                columns = headerColumns(fields);
+                continue;
+            }
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            Task task = toTask(field(fields, columns[0]), field(fields, columns[1]),
+                field(fields, columns[2]), field(fields, columns[3]), "record " + record, rejected);
+            if (task != null) {
+                buffer.put(task);
+            }
+        }
+    }
+
+    private static boolean isHeader(List<String> fields) {
+        for (String field : fields) {
+            if ("task".equalsIgnoreCase(field.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] headerColumns(List<String> header) throws IOException {
+        Map<String, Integer> byName = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            byName.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!byName.containsKey("task") || !byName.containsKey("due")) {
+            throw new IOException("CSV header needs task and due columns");
+        }
+        return new int[] {
+            byName.get("task"), byName.get("due"),
+            byName.getOrDefault("priority", -1), byName.getOrDefault("status", -1)
+        };
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column >= 0 && column < fields.size() ? fields.get(column) : null;
+    }
+
+    // One RFC 4180 record; quoted fields may contain commas, doubled quotes
+    // and line breaks
+    private static List<String> readCsvRecord(BufferedReader in) throws IOException {
+        String line = in.readLine();
+        if (line == null) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                line = in.readLine();
+                if (line == null) {
+                    throw new IOException("Unterminated quoted CSV field");
+                }
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c == '"' && i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static StringBuilder appendCsv(StringBuilder out, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return out.append(value);
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        return out.append('"');
+    }
+
+    private static void readJsonLines(BufferedReader in, BlockingQueue<Task> buffer, int[] rejected)
+            throws IOException, InterruptedException {
+        String line;
+        long number = 0;
+        while ((line = in.readLine()) != null) {
+            number++;
+            if (line.isBlank()) {
+                continue;
+            }
+            Map<String, Object> object;
+            try {
+                object = Json.parseObject(line);
+            } catch (IllegalArgumentException e) {
+                reject("line " + number, e.getMessage(), rejected);
+                continue;
+            }
+            Task task = toTask(text(object.get("task")), text(object.get("due")),
+                text(object.get("priority")), text(object.get("status")), "line " + number, rejected);
+            if (task != null) {
+                buffer.put(task);
+            }
+        }
+    }
+
+    private static String text(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    // Applies the same rules as the Add Task form: a non-empty description
+    // and a due date the DATE_FORMAT parser accepts
+    private static Task toTask(String description, String due, String priorityLabel, String statusLabel,
+                               String where, int[] rejected) {
+        if (description == null || description.trim().isEmpty()) {
+            return reject(where, "missing task description", rejected);
+        }
+        long dueMillis;
+        try {
+            dueMillis = DueDates.parse(due == null ? "" : due.trim());
+        } catch (ParseException e) {
+            return reject(where, "due date must be in format " + DueDates.DATE_FORMAT, rejected);
+        }
+        Priority priority = isBlank(priorityLabel) ? Priority.LOW : Priority.fromLabel(priorityLabel.trim());
+        if (priority == null) {
+            return reject(where, "unknown priority " + priorityLabel, rejected);
+        }
+        Status status = isBlank(statusLabel) ? Status.PENDING : Status.fromLabel(statusLabel.trim());
+        if (status == null) {
+            return reject(where, "unknown status " + statusLabel, rejected);
+        }
+        return new Task(0, description.trim(), dueMillis, priority, status);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static Task reject(String where, String reason, int[] rejected) {
+        rejected[0]++;
+        System.err.println("Skipping " + where + ": " + reason);
+        return null;
+    }
+}
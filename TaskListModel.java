@@ -0,0 +1,184 @@
+package src;
+
+import javax.swing.AbstractListModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// List model keyed by task id. A reload is applied as a diff against the
+// rows already shown, so only inserted, removed and changed rows fire
+// events and the JList keeps its selection and scroll position.
+class TaskListModel extends AbstractListModel<Task> {
+    // Beyond this many separate insert/remove runs a single reset is cheaper
+    // than shifting the backing list once per run
+    private static final int MAX_INCREMENTAL_RUNS = 128;
+
+    private final List<Task> rows = new ArrayList<>();
+
+    @Override
+    public int getSize() {
+        return rows.size();
+    }
+
+    @Override
+    public Task getElementAt(int index) {
+        return rows.get(index);
+    }
+
+    // Makes the model show exactly the given tasks, in the given order
+    public void apply(List<Task> fresh) {
+        long start = System.nanoTime();
+        try {
+            applyDiff(fresh);
+        } finally {
+            Metrics.UI_LIST_APPLY.recordSince(start, fresh.size());
+        }
+    }
+
+    private void applyDiff(List<Task> fresh) {
+        Map<Integer, Integer> newIndexById = new HashMap<>(fresh.size() * 2);
+        for (int i = 0; i < fresh.size(); i++) {
+            newIndexById.put(fresh.get(i).getId(), i);
+        }
+
+        // Where each current row ends up, or -1 if it is gone
+        int[] target = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            Integer j = newIndexById.get(rows.get(i).getId());
+            target[i] = j == null ? -1 : j;
+        }
+
+        // Rows that keep their relative order stay put; everything else is
+        // removed and re-inserted at its new position
+        boolean[] keep = longestIncreasingRun(target);
+        boolean[] kept = new boolean[fresh.size()];
+        for (int i = 0; i < target.length; i++) {
+            if (keep[i]) {
+                kept[target[i]] = true;
+            }
+        }
+
+        if (countRuns(keep, false) + countRuns(kept, false) > MAX_INCREMENTAL_RUNS) {
+            reset(fresh);
+            return;
+        }
+
+        // Removals, from the bottom up so earlier indexes stay valid
+        int end = rows.size() - 1;
+        while (end >= 0) {
+            if (keep[end]) {
+                end--;
+                continue;
+            }
+            int start = end;
+            while (start > 0 && !keep[start - 1]) {
+                start--;
+            }
+            rows.subList(start, end + 1).clear();
+            fireIntervalRemoved(this, start, end);
+            end = start - 1;
+        }
+
+        // Insertions, top down; kept rows are already in their final slots
+        int start = 0;
+        while (start < fresh.size()) {
+            if (kept[start]) {
+                start++;
+                continue;
+            }
+            int stop = start;
+            while (stop + 1 < fresh.size() && !kept[stop + 1]) {
+                stop++;
+            }
+            rows.addAll(start, fresh.subList(start, stop + 1));
+            fireIntervalAdded(this, start, stop);
+            start = stop + 1;
+        }
+
+        // Kept rows pick up the fresh instances; only real edits repaint
+        int changedFrom = -1;
+        for (int i = 0; i <= fresh.size(); i++) {
+            boolean changed = false;
+            if (i < fresh.size() && kept[i]) {
+                Task before = rows.get(i);
+                Task after = fresh.get(i);
+                changed = !sameContent(before, after);
+                rows.set(i, after);
+            }
+            if (changed && changedFrom < 0) {
+                changedFrom = i;
+            } else if (!changed && changedFrom >= 0) {
+                fireContentsChanged(this, changedFrom, i - 1);
+                changedFrom = -1;
+            }
+        }
+    }
+
+    private void reset(List<Task> fresh) {
+        int oldSize = rows.size();
+        rows.clear();
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+        rows.addAll(fresh);
+        if (!fresh.isEmpty()) {
+            fireIntervalAdded(this, 0, fresh.size() - 1);
+        }
+    }
+
+    static boolean sameContent(Task a, Task b) {
+        return a.getId() == b.getId()
+            && Objects.equals(a.getDescription(), b.getDescription())
+            && a.getDue() == b.getDue()
+            && a.getPriority() == b.getPriority()
+            && a.getStatus() == b.getStatus()
+            && a.isRecurring() == b.isRecurring();
+    }
+
+    private static int countRuns(boolean[] flags, boolean value) {
+        int runs = 0;
+        for (int i = 0; i < flags.length; i++) {
+            if (flags[i] == value && (i == 0 || flags[i - 1] != value)) {
+                runs++;
+            }
+        }
+        return runs;
+    }
+
+    // Marks the longest strictly increasing subsequence of non-negative
+    // targets (patience sorting, O(n log n))
+    private static boolean[] longestIncreasingRun(int[] target) {
+        int n = target.length;
+        int[] tails = new int[n];
+        int[] previous = new int[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            if (target[i] < 0) {
+                continue;
+            }
+            int lo = 0;
+            int hi = length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (target[tails[mid]] < target[i]) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            previous[i] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = i;
+            if (lo == length) {
+                length++;
+            }
+        }
+
+        boolean[] keep = new boolean[n];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            keep[i] = true;
+        }
+        return keep;
+    }
+}
@@ -0,0 +1,733 @@
+package src;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntPredicate;
+
+// Task queries and updates. Writes run on the database's writer thread and
+// reads on its reader thread (see ConnectionManager), so callers (the EDT
+// in particular) never block on I/O and reads never wait behind writes.
+// The SQLite TaskStorage, and the one the app and CLI use: search, paging,
+// recurring series and the archive are built on it.
+class TaskRepository implements TaskStorage {
+    private static final int SEARCH_CANDIDATES = 5_000;
+    private static final int DESCRIPTION_CACHE_SIZE = 4096;
+    // What readTask needs, in tasks and tasks_archive alike
+    private static final String COLUMNS = "id, task, due, priority, status, series_id";
+    // Occurrences of recurring tasks are created this far ahead of their due
+    // time, so the next one is in the list and in the reminder window in
+    // good time without a long run of future rows
+    static final long SERIES_LOOKAHEAD = 7L * 24 * 60 * 60 * 1000;
+
+    private final ConnectionManager db;
+
+    // Nothing needs expanding or promoting before this time: the earliest
+    // pending due time, or series next_due less the lookahead, as of the
+    // last maintenance. Written on the writer thread.
+    private volatile long maintainAt = Long.MIN_VALUE;
+    // The reader's data_version before the last maintenance. Any commit
+    // since, by this process or another (an add, a snooze, a new series,
+    // a CLI import), changes it, and the watermark is worked out again.
+    private volatile long maintainedDataVersion = -1;
+
+    // Confined to the reader thread. Recently read descriptions, so tasks
+    // that repeat one (recurring chores, imported templates) share a single
+    // String instead of each holding a copy.
+    private final String[] descriptions = new String[DESCRIPTION_CACHE_SIZE];
+
+    TaskRepository(String url) {
+        this.db = new ConnectionManager(url);
+    }
+
+    @Override
+    public CompletableFuture<Void> open() {
+        return db.open(conn -> {
+            SchemaMigrator.migrate(conn);
+            SchemaMigrator.createIndexes(conn);
+        });
+    }
+
+    CompletableFuture<Void> dropIndexes() {
+        return db.write(Metrics.SQL_INDEXES, c -> {
+            SchemaMigrator.dropIndexes(c.connection());
+            return null;
+        });
+    }
+
+    CompletableFuture<Void> createIndexes() {
+        return db.write(Metrics.SQL_INDEXES, c -> {
+            SchemaMigrator.createIndexes(c.connection());
+            return null;
+        });
+    }
+
+    // Completes once every read submitted so far has finished, i.e. once no
+    // earlier read can still be looking at data from before a commit
+    @Override
+    public CompletableFuture<Void> afterPendingReads() {
+        return db.afterPendingReads();
+    }
+
+    // Reads at most limit tasks in list order; callers that get limit rows
+    // back should switch to paging
+    CompletableFuture<List<Task>> loadAll(int limit) {
+        return beforeRead(System.currentTimeMillis()).thenCompose(promoted -> db.read(Metrics.SQL_LOAD_ALL, c -> {
+            PreparedStatement pst = c.prepare(
+                "SELECT " + COLUMNS + " FROM tasks ORDER BY due, id LIMIT ?");
+            pst.setInt(1, limit);
+            return readTasks(pst, new ArrayList<>(), Metrics.SQL_LOAD_ALL);
+        }));
+    }
+
+    // What changed since a refresh that saw the given change counter and
+    // data_version. The two are read with the rows in one read transaction,
+    // so they describe exactly the snapshot the rows came from. Null when
+    // nothing has been committed since, which costs one pragma; a full
+    // Delta (at most limit tasks in list order) on the first refresh, when
+    // tombstones it would need have been pruned, or when more than limit
+    // rows changed.
+    @Override
+    public CompletableFuture<Delta> changesSince(long version, long dataVersion, int limit) {
+        return beforeRead(System.currentTimeMillis()).thenCompose(promoted -> db.read(Metrics.SQL_DELTA, c -> c.inTransaction(tx -> {
+            long currentDataVersion;
+            try (ResultSet rs = tx.prepare("PRAGMA data_version").executeQuery()) {
+                currentDataVersion = rs.next() ? rs.getLong(1) : 0L;
+            }
+            if (version >= 0 && currentDataVersion == dataVersion) {
+                return null;
+            }
+            long currentVersion;
+            boolean full;
+            try (ResultSet rs = tx.prepare("SELECT version, pruned_through FROM sync_state").executeQuery()) {
+                rs.next();
+                currentVersion = rs.getLong(1);
+                full = version < 0 || version < rs.getLong(2);
+            }
+
+            List<Task> changed = new ArrayList<>();
+            List<Integer> deleted = new ArrayList<>();
+            if (!full) {
+                PreparedStatement rows = tx.prepare(
+                    "SELECT " + COLUMNS + " FROM tasks WHERE version > ? LIMIT ?");
+                rows.setLong(1, version);
+                rows.setInt(2, limit + 1);
+                readTasks(rows, changed, Metrics.SQL_DELTA);
+                full = changed.size() > limit;
+            }
+            if (full) {
+                changed.clear();
+                PreparedStatement all = tx.prepare(
+                    "SELECT " + COLUMNS + " FROM tasks ORDER BY due, id LIMIT ?");
+                all.setInt(1, limit);
+                readTasks(all, changed, Metrics.SQL_DELTA);
+            } else {
+                PreparedStatement tombstones = tx.prepare("SELECT id FROM tasks_deleted WHERE version > ?");
+                tombstones.setLong(1, version);
+                try (ResultSet rs = tombstones.executeQuery()) {
+                    while (rs.next()) {
+                        deleted.add(rs.getInt(1));
+                    }
+                }
+            }
+            return new Delta(currentDataVersion, currentVersion, full, changed, deleted);
+        })));
+    }
+
+    // Drops tombstones of deletes before the cutoff. Refreshes that last
+    // ran before the newest of them reload in full instead.
+    CompletableFuture<Integer> pruneTombstones(long deletedBefore) {
+        return db.write(Metrics.SQL_DELTA, c -> c.inTransaction(tx -> {
+            PreparedStatement mark = tx.prepare(
+                "UPDATE sync_state SET pruned_through = MAX(pruned_through, " +
+                "(SELECT MAX(version) FROM tasks_deleted WHERE deleted_at < ?)) " +
+                "WHERE EXISTS (SELECT 1 FROM tasks_deleted WHERE deleted_at < ?)");
+            mark.setLong(1, deletedBefore);
+            mark.setLong(2, deletedBefore);
+            mark.executeUpdate();
+            PreparedStatement prune = tx.prepare("DELETE FROM tasks_deleted WHERE deleted_at < ?");
+            prune.setLong(1, deletedBefore);
+            return prune.executeUpdate();
+        }));
+    }
+
+    // Callers that page through the tasks run refresh() first. Summed from
+    // task_counts, so it costs a dozen rows rather than a scan.
+    CompletableFuture<Integer> countAll() {
+        return db.read(Metrics.SQL_COUNT, c -> {
+            try (ResultSet rs = c.prepare("SELECT COALESCE(SUM(count), 0) FROM task_counts").executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
+    }
+
+    // Counts by status and priority and completions on each of the last
+    // days days, from the summary tables the triggers maintain; reads at
+    // most a dozen count rows and one per day however many tasks there are
+    CompletableFuture<TaskStats> stats(int days) {
+        return db.read(Metrics.SQL_STATS, c -> c.inTransaction(tx -> {
+            int[][] counts = new int[Status.values().length][Priority.values().length];
+            try (ResultSet rs = tx.prepare("SELECT status, priority, count FROM task_counts").executeQuery()) {
+                while (rs.next()) {
+                    int status = rs.getInt(1);
+                    int priority = rs.getInt(2);
+                    if (status >= 0 && status < counts.length && priority >= 0 && priority < counts[status].length) {
+                        counts[status][priority] = rs.getInt(3);
+                    }
+                }
+            }
+            LocalDate today = LocalDate.now();
+            LocalDate first = today.minusDays(days - 1);
+            int[] completions = new int[days];
+            PreparedStatement pst = tx.prepare("SELECT day, count FROM completions WHERE day >= ?");
+            pst.setString(1, first.toString());
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    long day = ChronoUnit.DAYS.between(first, LocalDate.parse(rs.getString(1)));
+                    if (day >= 0 && day < days) {
+                        completions[(int) day] = rs.getInt(2);
+                    }
+                }
+            }
+            return new TaskStats(counts, completions, today);
+        }));
+    }
+
+    CompletableFuture<Task> get(int id) {
+        return db.read(Metrics.SQL_GET, c -> {
+            PreparedStatement pst = c.prepare("SELECT " + COLUMNS + " FROM tasks WHERE id=?");
+            pst.setInt(1, id);
+            List<Task> found = readTasks(pst, new ArrayList<>(1), Metrics.SQL_GET);
+            return found.isEmpty() ? null : found.get(0);
+        });
+    }
+
+    // Changes whenever any connection commits, including this process's
+    // writer; the value is only meaningful within one process
+    CompletableFuture<Long> dataVersion() {
+        return db.read(Metrics.SQL_GET, c -> {
+            try (ResultSet rs = c.prepare("PRAGMA data_version").executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        });
+    }
+
+    // The writes a full read starts with, for callers that page through
+    // the tasks themselves
+    CompletableFuture<Void> refresh() {
+        return beforeRead(System.currentTimeMillis()).thenApply(promoted -> null);
+    }
+
+    // One page in (due, id) order. With the previous page's last row this is
+    // a keyset seek on idx_tasks_due; without it the start key is found by
+    // walking the covering index to the offset.
+    CompletableFuture<List<Task>> loadPage(int offset, Task after, int limit) {
+        return db.read(Metrics.SQL_LOAD_PAGE, c -> {
+            PreparedStatement pst;
+            if (after != null) {
+                pst = c.prepare("SELECT " + COLUMNS + " FROM tasks " +
+                                "WHERE (due, id) > (?, ?) ORDER BY due, id LIMIT ?");
+                pst.setLong(1, after.getDue());
+                pst.setInt(2, after.getId());
+                pst.setInt(3, limit);
+            } else {
+                pst = c.prepare("SELECT " + COLUMNS + " FROM tasks " +
+                                "WHERE (due, id) >= (SELECT due, id FROM tasks ORDER BY due, id LIMIT 1 OFFSET ?) " +
+                                "ORDER BY due, id LIMIT ?");
+                pst.setInt(1, offset);
+                pst.setInt(2, limit);
+            }
+            return readTasks(pst, new ArrayList<>(limit), Metrics.SQL_LOAD_PAGE);
+        });
+    }
+
+    // Open tasks due before the horizon, for reminders when the full list
+    // is not in memory
+    CompletableFuture<List<Task>> loadOpenDueBefore(long horizon) {
+        return db.read(Metrics.SQL_DUE_SCAN, c -> {
+            PreparedStatement pst = c.prepare(
+                "SELECT " + COLUMNS + " FROM tasks " +
+                "WHERE status IN (?, ?) AND due < ? ORDER BY due");
+            pst.setInt(1, Status.PENDING.code);
+            pst.setInt(2, Status.OVERDUE.code);
+            pst.setLong(3, horizon);
+            return readTasks(pst, new ArrayList<>(), Metrics.SQL_DUE_SCAN);
+        });
+    }
+
+    // Tasks matching every word of the query, the last one as a prefix so
+    // results follow typing, ranked by SearchRanking. Its strongest signal
+    // is whole-word hits, which FTS5 finds on its own, so half of the
+    // SEARCH_CANDIDATES are the newest tasks matching every word whole and
+    // half the newest matching with the last word as a prefix. A common
+    // word or a single letter then still brings up its whole-word hits and
+    // recent tasks, not just the oldest matches. ORDER BY rank would score
+    // every match with bm25 first: seconds for a word that appears in most
+    // tasks. Cancelling the future interrupts the query.
+    CompletableFuture<List<Task>> search(String query, int limit) {
+        return db.cancellableRead(Metrics.SQL_SEARCH, c -> {
+            String[] words = searchWords(query);
+            if (words.length == 0) {
+                return new ArrayList<>();
+            }
+            PreparedStatement pst = c.prepare(
+                "SELECT " + COLUMNS + " FROM tasks WHERE id IN (" +
+                "SELECT rowid FROM (SELECT rowid FROM tasks_fts WHERE tasks_fts MATCH ? ORDER BY rowid DESC LIMIT ?) " +
+                "UNION ALL " +
+                "SELECT rowid FROM (SELECT rowid FROM tasks_fts WHERE tasks_fts MATCH ? ORDER BY rowid DESC LIMIT ?)" +
+                ") ORDER BY due, id");
+            pst.setString(1, matchExpression(words, false));
+            pst.setInt(2, SEARCH_CANDIDATES / 2);
+            pst.setString(3, matchExpression(words, true));
+            pst.setInt(4, SEARCH_CANDIDATES / 2);
+            return SearchRanking.top(readTasks(pst, new ArrayList<>(), Metrics.SQL_SEARCH), words, limit);
+        });
+    }
+
+    static String[] searchWords(String query) {
+        String trimmed = query.trim().toLowerCase(Locale.ROOT);
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+    }
+
+    // Each word quoted, so user input never reaches the FTS5 query syntax
+    static String matchExpression(String[] words, boolean lastAsPrefix) {
+        StringBuilder match = new StringBuilder();
+        for (int i = 0; i < words.length; i++) {
+            if (i > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(words[i].replace("\"", "\"\"")).append('"');
+            if (lastAsPrefix && i == words.length - 1) {
+                match.append('*');
+            }
+        }
+        return match.toString();
+    }
+
+    // Every full read first creates the occurrences that have come within
+    // the lookahead window and flags overdue tasks, so it sees both. When
+    // nothing has been committed since the last time and no due time has
+    // been reached, that is known to be nothing, and the read goes ahead
+    // without queueing behind the writer.
+    private CompletableFuture<Integer> beforeRead(long now) {
+        return dataVersion().thenCompose(seen -> {
+            if (now < maintainAt && seen == maintainedDataVersion) {
+                return CompletableFuture.completedFuture(0);
+            }
+            return expandSeries(now).thenCompose(created -> promoteOverdue(now)).thenApply(promoted -> {
+                maintainedDataVersion = seen;
+                return promoted;
+            });
+        });
+    }
+
+    // Creates the waiting occurrence of each series whose next due time is
+    // now within the lookahead. Only series in that state have a next_due,
+    // so this is a short range scan on a partial index and costs nothing
+    // when no series is due.
+    private CompletableFuture<Integer> expandSeries(long now) {
+        return db.write(Metrics.SQL_SERIES, c -> c.inTransaction(tx -> {
+            PreparedStatement waiting = tx.prepare("SELECT id, next_due FROM series WHERE next_due < ?");
+            waiting.setLong(1, now + SERIES_LOOKAHEAD);
+            List<long[]> due = new ArrayList<>();
+            try (ResultSet rs = waiting.executeQuery()) {
+                while (rs.next()) {
+                    due.add(new long[] {rs.getLong(1), rs.getLong(2)});
+                }
+            }
+            for (long[] series : due) {
+                insertOccurrence(tx, (int) series[0], series[1]);
+                setNextDue(tx, (int) series[0], null);
+            }
+            Metrics.SQL_SERIES.addRows(due.size());
+            return due.size();
+        }));
+    }
+
+    // Flags every pending task whose due time has passed in one statement and
+    // one commit, before the read cursor is opened. The (status, due) index
+    // turns this into a range scan over just the rows that change.
+    private CompletableFuture<Integer> promoteOverdue(long now) {
+        return db.write(Metrics.SQL_PROMOTE_OVERDUE, c -> c.inTransaction(tx -> {
+            PreparedStatement pst = tx.prepare("UPDATE tasks SET status=? WHERE status=? AND due < ?");
+            pst.setInt(1, Status.OVERDUE.code);
+            pst.setInt(2, Status.PENDING.code);
+            pst.setLong(3, now);
+            int promoted = pst.executeUpdate();
+            Metrics.SQL_PROMOTE_OVERDUE.addRows(promoted);
+
+            // Both on indexes, so a seek each
+            long next = Long.MAX_VALUE;
+            PreparedStatement pending = tx.prepare("SELECT MIN(due) FROM tasks WHERE status=?");
+            pending.setInt(1, Status.PENDING.code);
+            try (ResultSet rs = pending.executeQuery()) {
+                if (rs.next() && rs.getObject(1) != null) {
+                    next = rs.getLong(1);
+                }
+            }
+            try (ResultSet rs = tx.prepare("SELECT MIN(next_due) FROM series WHERE next_due IS NOT NULL").executeQuery()) {
+                if (rs.next() && rs.getObject(1) != null) {
+                    next = Math.min(next, rs.getLong(1) - SERIES_LOOKAHEAD);
+                }
+            }
+            maintainAt = next;
+            return promoted;
+        }));
+    }
+
+    @Override
+    public CompletableFuture<Task> add(String description, long due, Priority priority) {
+        return db.write(Metrics.SQL_ADD, c -> {
+            PreparedStatement pst = c.prepare(
+                "INSERT INTO tasks(task, due, priority, status) VALUES (?, ?, ?, ?) RETURNING id");
+            pst.setString(1, description);
+            pst.setLong(2, due);
+            pst.setInt(3, priority.code);
+            pst.setInt(4, Status.PENDING.code);
+            try (ResultSet keys = pst.executeQuery()) {
+                keys.next();
+                Metrics.SQL_ADD.addRows(1);
+                return new Task(keys.getInt(1), description, due, priority, Status.PENDING);
+            }
+        });
+    }
+
+    // Starts a recurring series and creates its first occurrence, due at the
+    // given time; later occurrences follow the rule from there
+    CompletableFuture<Task> addSeries(String description, long due, Priority priority, Recurrence rule) {
+        return db.write(Metrics.SQL_SERIES, c -> c.inTransaction(tx -> {
+            PreparedStatement pst = tx.prepare(
+                "INSERT INTO series(task, priority, unit, every, anchor) VALUES (?, ?, ?, ?, ?) RETURNING id");
+            pst.setString(1, description);
+            pst.setInt(2, priority.code);
+            pst.setInt(3, rule.unit.code);
+            pst.setInt(4, rule.every);
+            pst.setLong(5, due);
+            int seriesId;
+            try (ResultSet keys = pst.executeQuery()) {
+                keys.next();
+                seriesId = keys.getInt(1);
+            }
+            Metrics.SQL_SERIES.addRows(1);
+            return insertOccurrence(tx, seriesId, due);
+        }));
+    }
+
+    // Moves each finished occurrence's series on to its next occurrence: the
+    // first one after both the finished one's due time and now, so a chore
+    // done late does not come back already overdue. It is created at once
+    // when it falls within the lookahead (and returned), otherwise when a
+    // later read reaches it. Only a series' newest occurrence advances it,
+    // so finishing an occurrence twice never skips one.
+    CompletableFuture<List<Task>> advanceSeries(Collection<Task> finished) {
+        long now = System.currentTimeMillis();
+        return db.write(Metrics.SQL_SERIES, c -> c.inTransaction(tx -> {
+            PreparedStatement find = tx.prepare(
+                "SELECT s.id, s.unit, s.every, s.anchor FROM series s " +
+                "WHERE s.id=(SELECT series_id FROM tasks WHERE id=?) AND s.next_due IS NULL " +
+                "AND ?=(SELECT MAX(id) FROM tasks WHERE series_id=s.id)");
+            List<Task> created = new ArrayList<>();
+            for (Task task : finished) {
+                if (!task.isRecurring()) {
+                    continue;
+                }
+                find.setInt(1, task.getId());
+                find.setInt(2, task.getId());
+                int seriesId;
+                long next;
+                try (ResultSet rs = find.executeQuery()) {
+                    if (!rs.next()) {
+                        continue;
+                    }
+                    seriesId = rs.getInt(1);
+                    Recurrence rule = new Recurrence(Recurrence.Unit.fromCode(rs.getInt(2)), rs.getInt(3));
+                    next = rule.nextAfter(rs.getLong(4), Math.max(task.getDue(), now));
+                }
+                if (next < now + SERIES_LOOKAHEAD) {
+                    created.add(insertOccurrence(tx, seriesId, next));
+                } else {
+                    setNextDue(tx, seriesId, next);
+                }
+            }
+            Metrics.SQL_SERIES.addRows(created.size());
+            return created;
+        }));
+    }
+
+    // Runs on the writer thread, so the description is not deduplicated
+    private static Task insertOccurrence(ConnectionManager.CachedConnection tx, int seriesId, long due)
+            throws SQLException {
+        PreparedStatement pst = tx.prepare(
+            "INSERT INTO tasks(task, due, priority, status, series_id) " +
+            "SELECT task, ?, priority, ?, id FROM series WHERE id=? RETURNING id, task, priority");
+        pst.setLong(1, due);
+        pst.setInt(2, Status.PENDING.code);
+        pst.setInt(3, seriesId);
+        try (ResultSet rs = pst.executeQuery()) {
+            rs.next();
+            return new Task(rs.getInt(1), rs.getString(2), due, Priority.fromCode(rs.getInt(3)), Status.PENDING, true);
+        }
+    }
+
+    private static void setNextDue(ConnectionManager.CachedConnection tx, int seriesId, Long nextDue)
+            throws SQLException {
+        PreparedStatement pst = tx.prepare("UPDATE series SET next_due=? WHERE id=?");
+        if (nextDue != null) {
+            pst.setLong(1, nextDue);
+        } else {
+            pst.setNull(1, Types.INTEGER);
+        }
+        pst.setInt(2, seriesId);
+        pst.executeUpdate();
+    }
+
+    // Inserts new tasks (ids are ignored) with one batched statement in a
+    // single transaction
+    @Override
+    public CompletableFuture<Integer> insertAll(List<Task> tasks) {
+        return db.write(Metrics.SQL_INSERT_BATCH, c -> c.inTransaction(tx -> {
+            PreparedStatement pst = tx.prepare(
+                "INSERT INTO tasks(task, due, priority, status) VALUES (?, ?, ?, ?)");
+            try {
+                for (Task task : tasks) {
+                    pst.setString(1, task.getDescription());
+                    pst.setLong(2, task.getDue());
+                    pst.setInt(3, task.getPriority().code);
+                    pst.setInt(4, task.getStatus().code);
+                    pst.addBatch();
+                }
+                pst.executeBatch();
+            } finally {
+                pst.clearBatch();
+            }
+            Metrics.SQL_INSERT_BATCH.addRows(tasks.size());
+            return tasks.size();
+        }));
+    }
+
+    // Streams every task in list order to the sink without holding them all
+    @Override
+    public CompletableFuture<Integer> forEachTask(TaskSink sink) {
+        return forEachTask(sink, false);
+    }
+
+    // The same, optionally with the archived tasks merged into the stream.
+    // Both tables are read in (due, id) index order, so the merge needs no
+    // sort.
+    CompletableFuture<Integer> forEachTask(TaskSink sink, boolean includeArchived) {
+        String sql = includeArchived
+            ? "SELECT " + COLUMNS + " FROM tasks UNION ALL " +
+              "SELECT " + COLUMNS + " FROM tasks_archive ORDER BY due, id"
+            : "SELECT " + COLUMNS + " FROM tasks ORDER BY due, id";
+        return db.read(Metrics.SQL_EXPORT, c -> {
+            int count = 0;
+            try (ResultSet rs = c.prepare(sql).executeQuery()) {
+                while (rs.next()) {
+                    sink.accept(readTask(rs));
+                    count++;
+                }
+            }
+            Metrics.SQL_EXPORT.addRows(count);
+            return count;
+        });
+    }
+
+    // Writes a batch of coalesced edits in one transaction, so a burst of
+    // changes costs a single commit. An edit to a task archived since it
+    // was loaded brings the task back from the archive rather than being
+    // dropped.
+    @Override
+    public CompletableFuture<Void> applyChanges(Collection<Change> changes) {
+        return db.write(Metrics.SQL_APPLY_CHANGES, c -> c.inTransaction(tx -> {
+            PreparedStatement update = tx.prepare(
+                "UPDATE tasks SET status=COALESCE(?, status), due=COALESCE(?, due), " +
+                "priority=COALESCE(?, priority) WHERE id=?");
+            PreparedStatement delete = tx.prepare("DELETE FROM tasks WHERE id=?");
+            // Deleting a series' newest occurrence while it is still open
+            // stops it repeating. A finished one has already moved the
+            // series on (next_due is set), so deleting it leaves the series.
+            PreparedStatement endSeries = tx.prepare(
+                "DELETE FROM series WHERE id=(SELECT series_id FROM tasks WHERE id=? AND status IN (?, ?)) " +
+                "AND next_due IS NULL AND ?=(SELECT MAX(id) FROM tasks WHERE series_id=series.id)");
+            List<Change> updates = new ArrayList<>(changes.size());
+            try {
+                for (Change change : changes) {
+                    if (change.deleted) {
+                        endSeries.setInt(1, change.id);
+                        endSeries.setInt(2, Status.PENDING.code);
+                        endSeries.setInt(3, Status.OVERDUE.code);
+                        endSeries.setInt(4, change.id);
+                        endSeries.addBatch();
+                        delete.setInt(1, change.id);
+                        delete.addBatch();
+                        continue;
+                    }
+                    bindUpdate(update, change);
+                    update.addBatch();
+                    updates.add(change);
+                }
+                int[] updated = update.executeBatch();
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] == 0 && unarchive(tx, updates.get(i).id)) {
+                        bindUpdate(update, updates.get(i));
+                        update.executeUpdate();
+                    }
+                }
+                if (Arrays.stream(endSeries.executeBatch()).sum() > 0) {
+                    detachEnded(tx);
+                }
+                delete.executeBatch();
+            } finally {
+                // Cached statements must not carry a failed batch into the next use
+                update.clearBatch();
+                endSeries.clearBatch();
+                delete.clearBatch();
+            }
+            Metrics.SQL_APPLY_CHANGES.addRows(changes.size());
+            return null;
+        }));
+    }
+
+    // The other occurrences of an ended series become plain tasks, so they
+    // lose the recurring marker. tasks has a partial index on series_id;
+    // the archive is scanned, but series end rarely.
+    private static void detachEnded(ConnectionManager.CachedConnection tx) throws SQLException {
+        for (String table : new String[] {"tasks", "tasks_archive"}) {
+            tx.prepare("UPDATE " + table + " SET series_id=NULL " +
+                "WHERE series_id IS NOT NULL AND series_id NOT IN (SELECT id FROM series)").executeUpdate();
+        }
+    }
+
+    private static void bindUpdate(PreparedStatement update, Change change) throws SQLException {
+        if (change.status != null) {
+            update.setInt(1, change.status.code);
+        } else {
+            update.setNull(1, Types.INTEGER);
+        }
+        if (change.due != Change.KEEP_DUE) {
+            update.setLong(2, change.due);
+        } else {
+            update.setNull(2, Types.INTEGER);
+        }
+        if (change.priority != null) {
+            update.setInt(3, change.priority.code);
+        } else {
+            update.setNull(3, Types.INTEGER);
+        }
+        update.setInt(4, change.id);
+    }
+
+    // Moves an archived task back into tasks, keeping its id. Its tombstone
+    // goes too, so a refresh sees it as changed rather than deleted.
+    private static boolean unarchive(ConnectionManager.CachedConnection tx, int id) throws SQLException {
+        PreparedStatement copy = tx.prepare(
+            "INSERT INTO tasks(id, task, due, priority, status, created_at, series_id) " +
+            "SELECT id, task, due, priority, status, created_at, series_id FROM tasks_archive WHERE id=?");
+        copy.setInt(1, id);
+        if (copy.executeUpdate() == 0) {
+            return false;
+        }
+        PreparedStatement remove = tx.prepare("DELETE FROM tasks_archive WHERE id=?");
+        remove.setInt(1, id);
+        remove.executeUpdate();
+        PreparedStatement tombstone = tx.prepare("DELETE FROM tasks_deleted WHERE id=?");
+        tombstone.setInt(1, id);
+        tombstone.executeUpdate();
+        return true;
+    }
+
+    // Moves up to limit done or dismissed tasks due before the cutoff from
+    // tasks to tasks_archive in one transaction and returns how many moved.
+    // The candidates are found on the (status, due) index without sorting,
+    // so a batch costs the same however much history there is. Tasks for
+    // which held is true are left in place; it is asked on the writer
+    // thread, inside the transaction, so nothing written after it is
+    // missed.
+    CompletableFuture<Integer> archiveFinished(long dueBefore, int limit, IntPredicate held) {
+        return db.write(Metrics.SQL_ARCHIVE, c -> c.inTransaction(tx -> {
+            PreparedStatement find = tx.prepare(
+                "SELECT id FROM tasks WHERE status IN (?, ?) AND due < ? LIMIT ?");
+            find.setInt(1, Status.DONE.code);
+            find.setInt(2, Status.DISMISSED.code);
+            find.setLong(3, dueBefore);
+            find.setInt(4, limit);
+            List<Integer> ids = new ArrayList<>();
+            try (ResultSet rs = find.executeQuery()) {
+                while (rs.next()) {
+                    if (!held.test(rs.getInt(1))) {
+                        ids.add(rs.getInt(1));
+                    }
+                }
+            }
+            if (ids.isEmpty()) {
+                return 0;
+            }
+
+            PreparedStatement copy = tx.prepare(
+                "INSERT INTO tasks_archive(id, task, due, priority, status, created_at, series_id, archived_at) " +
+                "SELECT id, task, due, priority, status, created_at, series_id, ? FROM tasks WHERE id=?");
+            PreparedStatement delete = tx.prepare("DELETE FROM tasks WHERE id=?");
+            long now = System.currentTimeMillis();
+            try {
+                for (int id : ids) {
+                    copy.setLong(1, now);
+                    copy.setInt(2, id);
+                    copy.addBatch();
+                    delete.setInt(1, id);
+                    delete.addBatch();
+                }
+                copy.executeBatch();
+                delete.executeBatch();
+            } finally {
+                copy.clearBatch();
+                delete.clearBatch();
+            }
+            Metrics.SQL_ARCHIVE.addRows(ids.size());
+            return ids.size();
+        }));
+    }
+
+    private List<Task> readTasks(PreparedStatement pst, List<Task> tasks, Metric metric) throws SQLException {
+        try (ResultSet rs = pst.executeQuery()) {
+            while (rs.next()) {
+                tasks.add(readTask(rs));
+            }
+        }
+        metric.addRows(tasks.size());
+        return tasks;
+    }
+
+    private Task readTask(ResultSet rs) throws SQLException {
+        return new Task(
+            rs.getInt("id"),
+            dedupe(rs.getString("task")),
+            rs.getLong("due"),
+            Priority.fromCode(rs.getInt("priority")),
+            Status.fromCode(rs.getInt("status")),
+            rs.getInt("series_id") != 0
+        );
+    }
+
+    // Direct-mapped, so the cache never grows and a lookup is one compare
+    private String dedupe(String description) {
+        int slot = description.hashCode() & (DESCRIPTION_CACHE_SIZE - 1);
+        String cached = descriptions[slot];
+        if (description.equals(cached)) {
+            return cached;
+        }
+        descriptions[slot] = description;
+        return description;
+    }
+
+    // Lets pending work drain, then closes the connections on their threads
+    @Override
+    public void close() {
+        db.close();
+    }
+}
@@ -0,0 +1,415 @@
+package src;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Local JSON API over tasks.db for scripts and other tools, bound to the
+// loopback interface only. Runs next to the window with
+// -Dtodo.http.port=N, or headless with --serve.
+//   GET  /tasks                every task in list order, streamed
+//   GET  /tasks/{id}
+//   POST /tasks                {"task":..,"due":"yyyy-MM-dd HH:mm","priority":..}
+//   POST /tasks/{id}/complete
+//   POST /tasks/{id}/dismiss
+//   POST /tasks/{id}/snooze    {"minutes":N}, default 60
+// GETs carry an ETag that changes with every commit to the database and
+// answer a matching If-None-Match with 304.
+//
+// Handlers never wait on the database: each request is finished from the
+// callback of its repository future, so a few threads keep thousands of
+// requests in flight. Lists are written a page at a time, with the next
+// page read while the current one goes out.
+final class TaskServer implements AutoCloseable {
+    static final int DEFAULT_PORT = 8321;
+
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final int BACKLOG = 4096;
+    private static final int PAGE = 1000;
+    private static final int MAX_BODY = 64 * 1024;
+    private static final long REFRESH_INTERVAL = 1000;
+    private static final long DEFAULT_SNOOZE_MINUTES = 60;
+
+    static {
+        // Headers and body go out as separate writes, so without TCP_NODELAY
+        // every small response waits out a delayed ACK, about 40 ms
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final TaskRepository repository;
+    private final ExecutorService executor;
+    private final HttpServer server;
+    // data_version is per process, so tags from an earlier run must not match
+    private final String etagPrefix = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    // Guarded by this
+    private CompletableFuture<Void> refreshed;
+    private long refreshedAt;
+
+    private TaskServer(TaskRepository repository, int port) throws IOException {
+        this.repository = repository;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread thread = new Thread(r, "todo-http-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/tasks", this::handle);
+        server.start();
+    }
+
+    // Port 0 picks a free port; see port()
+    static TaskServer start(TaskRepository repository, int port) throws IOException {
+        return new TaskServer(repository, port);
+    }
+
+    static TaskServer startIfEnabled(TaskRepository repository) {
+        Integer port = Integer.getInteger("todo.http.port");
+        if (port == null) {
+            return null;
+        }
+        try {
+            return start(repository, port);
+        } catch (IOException e) {
+            System.err.println("Could not start the local API on port " + port + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) {
+        long start = System.nanoTime();
+        CompletableFuture<Void> response;
+        try {
+            response = dispatch(exchange);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.whenCompleteAsync((ignored, error) -> {
+            if (error != null) {
+                fail(exchange, error);
+            }
+            exchange.close();
+            Metrics.HTTP_REQUEST.recordSince(start);
+        }, executor);
+    }
+
+    // /tasks, /tasks/{id} or /tasks/{id}/{action}
+    private CompletableFuture<Void> dispatch(HttpExchange exchange) {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        if (path.length < 2 || path.length > 4 || !"tasks".equals(path[1])) {
+            throw new ApiError(404, "Not found");
+        }
+        if (path.length == 2) {
+            if ("GET".equals(method)) {
+                return list(exchange);
+            }
+            if ("POST".equals(method)) {
+                return add(exchange);
+            }
+            throw new ApiError(405, "Use GET or POST");
+        }
+
+        int id = taskId(path[2]);
+        if (path.length == 3) {
+            if (!"GET".equals(method)) {
+                throw new ApiError(405, "Use GET");
+            }
+            return get(exchange, id);
+        }
+        if (!"POST".equals(method)) {
+            throw new ApiError(405, "Use POST");
+        }
+        switch (path[3]) {
+            case "complete": return finish(exchange, id, Status.DONE);
+            case "dismiss": return finish(exchange, id, Status.DISMISSED);
+            case "snooze": return snooze(exchange, id);
+            default: throw new ApiError(404, "Unknown action " + path[3]);
+        }
+    }
+
+    private CompletableFuture<Void> list(HttpExchange exchange) {
+        // The version is read before any rows, so the tag can only be older
+        // than the data it goes out with, never newer
+        return fresh().thenCompose(ignored -> repository.dataVersion()).thenComposeAsync(io(version -> {
+            String etag = etag(version);
+            if (notModified(exchange, etag)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            exchange.getResponseHeaders().set("Content-Type", JSON);
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.sendResponseHeaders(200, 0);
+            Writer out = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 1 << 16);
+            out.write('[');
+            return writePages(out, repository.loadPage(0, null, PAGE), true).thenApply(io(ignored -> {
+                out.write("]\n");
+                out.flush();
+                return null;
+            }));
+        }), executor);
+    }
+
+    private CompletableFuture<Void> writePages(Writer out, CompletableFuture<List<Task>> pending, boolean first) {
+        return pending.thenComposeAsync(io(page -> {
+            CompletableFuture<List<Task>> next = page.size() == PAGE
+                ? repository.loadPage(0, page.get(PAGE - 1), PAGE)
+                : null;
+            StringBuilder json = new StringBuilder(page.size() * 128);
+            for (int i = 0; i < page.size(); i++) {
+                if (!first || i > 0) {
+                    json.append(",\n");
+                }
+                Json.appendTask(json, page.get(i));
+            }
+            out.append(json);
+            return next == null ? CompletableFuture.completedFuture(null) : writePages(out, next, false);
+        }), executor);
+    }
+
+    private CompletableFuture<Void> get(HttpExchange exchange, int id) {
+        return fresh().thenCompose(ignored -> repository.dataVersion()).thenComposeAsync(version -> {
+            String etag = etag(version);
+            if (notModified(exchange, etag)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            exchange.getResponseHeaders().set("ETag", etag);
+            return repository.get(id).thenAcceptAsync(ioAccept(task -> send(exchange, 200, found(task, id))), executor);
+        }, executor);
+    }
+
+    private CompletableFuture<Void> add(HttpExchange exchange) {
+        Map<String, Object> body = body(exchange, true);
+        String description = text(body.get("task"));
+        if (description == null || description.isBlank()) {
+            throw new ApiError(400, "task is required");
+        }
+        long due;
+        try {
+            due = DueDates.parse(String.valueOf(body.get("due")));
+        } catch (ParseException e) {
+            throw new ApiError(400, "due must be in format " + DueDates.DATE_FORMAT);
+        }
+        String label = text(body.get("priority"));
+        Priority priority = label == null ? Priority.LOW : Priority.fromLabel(label);
+        if (priority == null) {
+            throw new ApiError(400, "Unknown priority " + label);
+        }
+        return repository.add(description.trim(), due, priority).thenAcceptAsync(ioAccept(task -> {
+            exchange.getResponseHeaders().set("Location", "/tasks/" + task.getId());
+            send(exchange, 201, Json.appendTask(new StringBuilder(), task).toString());
+        }), executor);
+    }
+
+    // Marks the task done or dismissed; a recurring one brings on its next
+    // occurrence, as in the window
+    private CompletableFuture<Void> finish(HttpExchange exchange, int id, Status status) {
+        return repository.get(id).thenCompose(task -> {
+            found(task, id);
+            CompletableFuture<?> written = repository.applyChanges(
+                List.of(new TaskStorage.Change(id, status, TaskStorage.Change.KEEP_DUE, false)));
+            if (task.getStatus().isOpen()) {
+                written = written.thenCompose(ignored -> repository.advanceSeries(List.of(task)));
+            }
+            return written.thenCompose(ignored -> repository.get(id));
+        }).thenAcceptAsync(ioAccept(task -> send(exchange, 200, found(task, id))), executor);
+    }
+
+    private CompletableFuture<Void> snooze(HttpExchange exchange, int id) {
+        Object minutes = body(exchange, false).getOrDefault("minutes", DEFAULT_SNOOZE_MINUTES);
+        if (!(minutes instanceof Long) || (Long) minutes <= 0) {
+            throw new ApiError(400, "minutes must be a positive whole number");
+        }
+        // Whole minutes, matching what DATE_FORMAT shows
+        long newDue = (System.currentTimeMillis() + (Long) minutes * 60_000) / 60_000 * 60_000;
+        return repository.get(id).thenCompose(task -> {
+            found(task, id);
+            return repository.applyChanges(List.of(new TaskStorage.Change(id, null, newDue, false)))
+                .thenCompose(ignored -> repository.get(id));
+        }).thenAcceptAsync(ioAccept(task -> send(exchange, 200, found(task, id))), executor);
+    }
+
+    // Flags overdue tasks and creates due occurrences at most once a second
+    // however many requests arrive, so reads see current statuses without
+    // queueing a write for each one
+    private synchronized CompletableFuture<Void> fresh() {
+        long now = System.currentTimeMillis();
+        if (now - refreshedAt >= REFRESH_INTERVAL) {
+            refreshedAt = now;
+            refreshed = repository.refresh().exceptionally(error -> {
+                System.err.println("Error refreshing tasks: " + error.getMessage());
+                return null;
+            });
+        }
+        return refreshed;
+    }
+
+    private String etag(long version) {
+        return "\"" + etagPrefix + "-" + version + "\"";
+    }
+
+    private static boolean notModified(HttpExchange exchange, String etag) {
+        String match = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (match == null) {
+            return false;
+        }
+        for (String candidate : match.split(",")) {
+            if (candidate.trim().equals(etag) || candidate.trim().equals("*")) {
+                exchange.getResponseHeaders().set("ETag", etag);
+                try {
+                    exchange.sendResponseHeaders(304, -1);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String found(Task task, int id) {
+        if (task == null) {
+            throw new ApiError(404, "No task " + id);
+        }
+        return Json.appendTask(new StringBuilder(), task).toString();
+    }
+
+    private static int taskId(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new ApiError(404, "No task " + text);
+        }
+    }
+
+    // The request's JSON object; an empty body is {} unless one is required
+    private static Map<String, Object> body(HttpExchange exchange, boolean required) {
+        byte[] bytes;
+        try {
+            bytes = exchange.getRequestBody().readNBytes(MAX_BODY + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (bytes.length > MAX_BODY) {
+            throw new ApiError(413, "Request body is too large");
+        }
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        if (text.isBlank() && !required) {
+            return Map.of();
+        }
+        try {
+            return Json.parseObject(text.trim());
+        } catch (IllegalArgumentException e) {
+            throw new ApiError(400, "Bad JSON: " + e.getMessage());
+        }
+    }
+
+    private static String text(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = (json + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    // Reports the error as JSON, unless the response had already started,
+    // in which case closing the exchange is all that is left to do
+    private static void fail(HttpExchange exchange, Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        int status = 500;
+        String message = String.valueOf(error.getMessage());
+        if (error instanceof ApiError) {
+            status = ((ApiError) error).status;
+        } else {
+            error.printStackTrace();
+        }
+        StringBuilder json = new StringBuilder("{\"error\":");
+        Json.appendString(json, message).append('}');
+        try {
+            send(exchange, status, json.toString());
+        } catch (IOException e) {
+            // The client has gone
+        }
+    }
+
+    private static <T, R> Function<T, R> io(IoFunction<T, R> function) {
+        return value -> {
+            try {
+                return function.apply(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static <T> Consumer<T> ioAccept(IoConsumer<T> consumer) {
+        return value -> {
+            try {
+                consumer.accept(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    private interface IoFunction<T, R> {
+        R apply(T value) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface IoConsumer<T> {
+        void accept(T value) throws IOException;
+    }
+
+    private static final class ApiError extends RuntimeException {
+        final int status;
+
+        ApiError(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+    }
+}
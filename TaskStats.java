@@ -0,0 +1,45 @@
+package src;
+
+import java.time.LocalDate;
+
+// The dashboard's figures: how many tasks are in each status and priority,
+// and how many were marked done on each of the last few days. Read from
+// the summary tables the database keeps up to date on every write.
+final class TaskStats {
+    // [status code][priority code]
+    private final int[][] counts;
+    // Oldest first; the last day is today
+    private final int[] completions;
+    final LocalDate today;
+
+    TaskStats(int[][] counts, int[] completions, LocalDate today) {
+        this.counts = counts;
+        this.completions = completions;
+        this.today = today;
+    }
+
+    int count(Status status, Priority priority) {
+        return counts[status.code][priority.code];
+    }
+
+    int count(Status status) {
+        int total = 0;
+        for (int count : counts[status.code]) {
+            total += count;
+        }
+        return total;
+    }
+
+    int open() {
+        return count(Status.PENDING) + count(Status.OVERDUE);
+    }
+
+    int days() {
+        return completions.length;
+    }
+
+    // Tasks marked done daysAgo days before today
+    int completed(int daysAgo) {
+        return completions[completions.length - 1 - daysAgo];
+    }
+}
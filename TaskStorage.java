@@ -0,0 +1,104 @@
+package src;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Where tasks are kept. TaskStore drives one of these: it loads the list
+// with changesSince, writes new tasks with add/insertAll and flushes its
+// coalesced edits through applyChanges. Every call completes on the
+// storage's own thread(s), never the caller's.
+interface TaskStorage extends AutoCloseable {
+    CompletableFuture<Void> open();
+
+    CompletableFuture<Task> add(String description, long due, Priority priority);
+
+    // Inserts new tasks (ids are ignored) as one write
+    CompletableFuture<Integer> insertAll(List<Task> tasks);
+
+    // Writes a batch of coalesced edits as one write
+    CompletableFuture<Void> applyChanges(Collection<Change> changes);
+
+    // The tasks changed and deleted since a version, or null if dataVersion
+    // shows nothing has been written since; see Delta
+    CompletableFuture<Delta> changesSince(long version, long dataVersion, int limit);
+
+    // Streams every task in list order to the sink without holding them all
+    CompletableFuture<Integer> forEachTask(TaskSink sink);
+
+    // Completes once no earlier read can still see data from before a write
+    CompletableFuture<Void> afterPendingReads();
+
+    @Override
+    void close();
+
+    // The net effect of one or more edits to a task: a new status, due time
+    // and/or priority, or deletion
+    static final class Change {
+        static final long KEEP_DUE = Long.MIN_VALUE;
+
+        final int id;
+        final Status status;
+        final long due;
+        final Priority priority;
+        final boolean deleted;
+
+        Change(int id, Status status, long due, boolean deleted) {
+            this(id, status, due, null, deleted);
+        }
+
+        Change(int id, Status status, long due, Priority priority, boolean deleted) {
+            this.id = id;
+            this.status = status;
+            this.due = due;
+            this.priority = priority;
+            this.deleted = deleted;
+        }
+
+        // This change followed by a later one to the same task
+        Change then(Change later) {
+            if (deleted || later.deleted) {
+                return new Change(id, null, KEEP_DUE, true);
+            }
+            return new Change(id,
+                later.status != null ? later.status : status,
+                later.due != KEEP_DUE ? later.due : due,
+                later.priority != null ? later.priority : priority,
+                false);
+        }
+
+        // The task as it looks once this change is applied, or null if deleted
+        Task applyTo(Task task) {
+            if (deleted) {
+                return null;
+            }
+            Task edited = status != null ? task.withStatus(status) : task;
+            edited = priority != null ? edited.withPriority(priority) : edited;
+            return due != KEEP_DUE ? edited.withDue(due) : edited;
+        }
+    }
+
+    // Rows changed since a refresh and ids deleted since, with the change
+    // counter and data_version to pass to the next changesSince. A full
+    // delta's rows replace the list instead of being merged into it.
+    static final class Delta {
+        final long dataVersion;
+        final long version;
+        final boolean full;
+        final List<Task> changed;
+        final List<Integer> deleted;
+
+        Delta(long dataVersion, long version, boolean full, List<Task> changed, List<Integer> deleted) {
+            this.dataVersion = dataVersion;
+            this.version = version;
+            this.full = full;
+            this.changed = changed;
+            this.deleted = deleted;
+        }
+    }
+
+    @FunctionalInterface
+    interface TaskSink {
+        void accept(Task task) throws Exception;
+    }
+}
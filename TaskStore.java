@@ -0,0 +1,240 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// The authoritative in-memory task list the UI reads and edits. Status,
+// snooze, priority and delete edits change memory at once and go into a
+// write-behind log, coalesced per task id, that is flushed to the storage
+// in one transaction shortly after the first unsaved edit and again on
+// close.
+// Refreshes are overlaid with edits that have not been written yet, so a
+// refresh never shows a task reverting.
+class TaskStore implements AutoCloseable {
+    static final long FLUSH_DELAY = 250;
+    private static final long RETRY_DELAY = 5_000;
+
+    private final TaskStorage storage;
+    private final ScheduledThreadPoolExecutor flusher;
+
+    // Guarded by this
+    private final Map<Integer, Task> byId = new HashMap<>();
+    // byId indexed for the list's views, kept in step with every change
+    private final TaskViewIndex views = new TaskViewIndex();
+    // Edits stay here until their transaction commits
+    private final Map<Integer, TaskStorage.Change> log = new LinkedHashMap<>();
+    // The change counter and data_version the list was last refreshed at;
+    // -1 until the first refresh
+    private long syncedVersion = -1;
+    private long syncedDataVersion = -1;
+    private ScheduledFuture<?> scheduled;
+    private CompletableFuture<Void> flushing = CompletableFuture.completedFuture(null);
+
+    TaskStore(TaskStorage storage) {
+        this.storage = storage;
+        this.flusher = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "todo-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.setRemoveOnCancelPolicy(true);
+    }
+
+    // Brings the in-memory list up to date with the database. The first
+    // call loads at most limit tasks; later ones apply only the rows changed
+    // and deleted since the previous one, and read nothing when no commit
+    // has happened in between. Callers that get more than limit tasks back
+    // should switch to paging.
+    CompletableFuture<List<Task>> refresh(int limit) {
+        long version;
+        long dataVersion;
+        synchronized (this) {
+            version = syncedVersion;
+            dataVersion = syncedDataVersion;
+        }
+        return storage.changesSince(version, dataVersion, limit).thenApply(this::merge);
+    }
+
+    private synchronized List<Task> merge(TaskStorage.Delta delta) {
+        // Null when unchanged; an older delta can land after a newer one
+        // when two refreshes overlap, and must not undo it
+        if (delta == null || delta.version < syncedVersion) {
+            return tasks();
+        }
+        if (delta.full) {
+            byId.clear();
+            views.clear();
+        }
+        for (Task task : overlay(delta.changed)) {
+            views.update(byId.put(task.getId(), task), task);
+        }
+        for (int id : delta.deleted) {
+            views.update(byId.remove(id), null);
+        }
+        syncedVersion = delta.version;
+        syncedDataVersion = delta.dataVersion;
+        return tasks();
+    }
+
+    // Rows read straight from the database, with unsaved edits applied and
+    // deleted tasks left out
+    synchronized List<Task> overlay(List<Task> rows) {
+        if (log.isEmpty()) {
+            return rows;
+        }
+        List<Task> current = new ArrayList<>(rows.size());
+        for (Task task : rows) {
+            TaskStorage.Change change = log.get(task.getId());
+            Task edited = change != null ? change.applyTo(task) : task;
+            if (edited != null) {
+                current.add(edited);
+            }
+        }
+        return current;
+    }
+
+    // Whether the task has edits not yet written, or written so recently
+    // that a read may not see them
+    synchronized boolean isUnsaved(int id) {
+        return log.containsKey(id);
+    }
+
+    // Drops the in-memory list; edits still pending are kept and flushed.
+    // The next refresh loads in full.
+    synchronized void clear() {
+        byId.clear();
+        views.clear();
+        syncedVersion = -1;
+        syncedDataVersion = -1;
+    }
+
+    // All tasks in list order, including edits not yet written
+    synchronized List<Task> tasks() {
+        return view(TaskView.ALL);
+    }
+
+    // The tasks a view shows, in its order, including edits not yet written
+    synchronized List<Task> view(TaskView view) {
+        return views.get(view, System.currentTimeMillis());
+    }
+
+    // A task the storage has just inserted
+    synchronized void add(Task task) {
+        views.update(byId.put(task.getId(), task), task);
+    }
+
+    synchronized void setStatus(Collection<Task> tasks, Status status) {
+        for (Task task : tasks) {
+            edit(new TaskStorage.Change(task.getId(), status, TaskStorage.Change.KEEP_DUE, false));
+        }
+    }
+
+    synchronized void snooze(Collection<Task> tasks, long newDue) {
+        for (Task task : tasks) {
+            edit(new TaskStorage.Change(task.getId(), null, newDue, false));
+        }
+    }
+
+    synchronized void setPriority(Collection<Task> tasks, Priority priority) {
+        for (Task task : tasks) {
+            edit(new TaskStorage.Change(task.getId(), null, TaskStorage.Change.KEEP_DUE, priority, false));
+        }
+    }
+
+    synchronized void delete(Collection<Task> tasks) {
+        for (Task task : tasks) {
+            edit(new TaskStorage.Change(task.getId(), null, TaskStorage.Change.KEEP_DUE, true));
+        }
+    }
+
+    private void edit(TaskStorage.Change change) {
+        Task task = byId.get(change.id);
+        if (task != null) {
+            Task edited = change.applyTo(task);
+            if (edited != null) {
+                byId.put(edited.getId(), edited);
+            } else {
+                byId.remove(change.id);
+            }
+            views.update(task, edited);
+        }
+        log.merge(change.id, change, TaskStorage.Change::then);
+        scheduleFlush(FLUSH_DELAY);
+    }
+
+    // Writes every logged edit in one transaction. Only one flush runs at a
+    // time; edits made while it is in flight go in the next one.
+    CompletableFuture<Void> flush() {
+        synchronized (this) {
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+            if (!flushing.isDone()) {
+                return flushing.handle((ignored, error) -> null).thenCompose(ignored -> flush());
+            }
+            if (log.isEmpty()) {
+                return flushing;
+            }
+            Map<Integer, TaskStorage.Change> batch = new LinkedHashMap<>(log);
+            flushing = storage.applyChanges(batch.values()).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    System.err.println("Error saving tasks: " + error.getMessage());
+                }
+                written(batch, error == null);
+            });
+            return flushing;
+        }
+    }
+
+    private void written(Map<Integer, TaskStorage.Change> batch, boolean committed) {
+        if (!committed) {
+            synchronized (this) {
+                scheduleFlush(RETRY_DELAY);
+            }
+            return;
+        }
+        // A read that started before the commit can still return the old
+        // rows, so the entries keep overlaying reads until those finish
+        storage.afterPendingReads().thenRun(() -> settled(batch));
+    }
+
+    private synchronized void settled(Map<Integer, TaskStorage.Change> batch) {
+        // Entries edited again since the snapshot stay for the next flush
+        batch.forEach(log::remove);
+        if (!log.isEmpty()) {
+            scheduleFlush(FLUSH_DELAY);
+        }
+    }
+
+    private void scheduleFlush(long delay) {
+        if (scheduled != null || flusher.isShutdown()) {
+            return;
+        }
+        scheduled = flusher.schedule(() -> {
+            synchronized (this) {
+                scheduled = null;
+            }
+            flush();
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // Stops the flush timer and writes whatever is still unsaved
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        try {
+            flush().join();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+}
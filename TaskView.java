@@ -0,0 +1,116 @@
+package src;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+// A filtered, ordered view of the loaded tasks: the statuses and priorities
+// it shows, optionally a due window relative to now, and an order. Views
+// compose with and(), which keeps what both show. TaskViewIndex answers
+// them from its indexes without scanning the list.
+final class TaskView {
+    enum Order { DUE, PRIORITY }
+
+    // Computes the due window [from, to) a view covers at a given time
+    @FunctionalInterface
+    interface DueWindow {
+        long[] at(long now);
+    }
+
+    private static final long MINUTE = 60_000;
+    private static final int ALL_STATUSES = (1 << Status.values().length) - 1;
+    private static final int ALL_PRIORITIES = (1 << Priority.values().length) - 1;
+    private static final int OPEN = statuses(Status.PENDING, Status.OVERDUE);
+
+    static final TaskView ALL = new TaskView("All tasks", ALL_STATUSES, ALL_PRIORITIES, null, Order.DUE);
+    static final TaskView OPEN_TASKS = new TaskView("Open", OPEN, ALL_PRIORITIES, null, Order.DUE);
+    // Tasks are due on whole minutes, so the bound only moves once a minute
+    // and the view's cached list stays valid until then
+    static final TaskView OVERDUE = OPEN_TASKS.and("Overdue",
+        dueWithin(now -> new long[] {Long.MIN_VALUE, now / MINUTE * MINUTE + 1}));
+    static final TaskView DUE_TODAY = OPEN_TASKS.and("Due today", dueWithin(TaskView::today));
+    static final TaskView HIGH_PRIORITY = OPEN_TASKS.and("High priority",
+        new TaskView(null, ALL_STATUSES, priorities(Priority.HIGH), null, Order.DUE));
+    static final TaskView BY_PRIORITY = new TaskView("By priority", ALL_STATUSES, ALL_PRIORITIES, null, Order.PRIORITY);
+    static final TaskView FINISHED = new TaskView("Finished", statuses(Status.DONE, Status.DISMISSED), ALL_PRIORITIES, null, Order.DUE);
+
+    // The views offered in the list's view menu, in menu order
+    static final TaskView[] SAVED = {ALL, OPEN_TASKS, OVERDUE, DUE_TODAY, HIGH_PRIORITY, BY_PRIORITY, FINISHED};
+
+    final String name;
+    final int statusMask;
+    final int priorityMask;
+    final DueWindow window;
+    final Order order;
+
+    TaskView(String name, int statusMask, int priorityMask, DueWindow window, Order order) {
+        this.name = name;
+        this.statusMask = statusMask;
+        this.priorityMask = priorityMask;
+        this.window = window;
+        this.order = order;
+    }
+
+    // Every task due within the window, for composing with and()
+    static TaskView dueWithin(DueWindow window) {
+        return new TaskView(null, ALL_STATUSES, ALL_PRIORITIES, window, Order.DUE);
+    }
+
+    static int statuses(Status... statuses) {
+        int mask = 0;
+        for (Status status : statuses) {
+            mask |= 1 << status.code;
+        }
+        return mask;
+    }
+
+    static int priorities(Priority... priorities) {
+        int mask = 0;
+        for (Priority priority : priorities) {
+            mask |= 1 << priority.code;
+        }
+        return mask;
+    }
+
+    // Tasks both views show, in the other view's order when it sorts by
+    // something other than due
+    TaskView and(String name, TaskView other) {
+        DueWindow combined;
+        if (window == null || other.window == null) {
+            combined = window != null ? window : other.window;
+        } else {
+            DueWindow first = window;
+            DueWindow second = other.window;
+            combined = now -> {
+                long[] a = first.at(now);
+                long[] b = second.at(now);
+                return new long[] {Math.max(a[0], b[0]), Math.min(a[1], b[1])};
+            };
+        }
+        return new TaskView(name, statusMask & other.statusMask, priorityMask & other.priorityMask, combined,
+            other.order != Order.DUE ? other.order : order);
+    }
+
+    boolean shows(Status status, Priority priority) {
+        return (statusMask & (1 << status.code)) != 0 && (priorityMask & (1 << priority.code)) != 0;
+    }
+
+    boolean matches(Task task, long[] bounds) {
+        return shows(task.getStatus(), task.getPriority())
+            && (bounds == null || task.getDue() >= bounds[0] && task.getDue() < bounds[1]);
+    }
+
+    private static long[] today(long now) {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate day = LocalDate.ofInstant(Instant.ofEpochMilli(now), zone);
+        return new long[] {
+            day.atStartOfDay(zone).toInstant().toEpochMilli(),
+            day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli()
+        };
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,197 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+// Secondary indexes over the in-memory task list: one set per (status,
+// priority) pair, each kept in list order, so an edit costs a couple of
+// O(log n) set updates. A view's tasks are the sets it shows, each cut to
+// its due window by a range lookup and merged in order, so answering it
+// touches only the rows it returns. Answers are cached per view, which
+// makes switching between views a map lookup. Edits to tasks a cached view
+// shows are patched into its list by binary search the next time it is
+// asked for; a view with more edits than that is worth, or whose due window
+// has moved, is answered afresh. Not thread-safe; TaskStore guards it.
+final class TaskViewIndex {
+    static final Comparator<Task> LIST_ORDER =
+        Comparator.comparingLong(Task::getDue).thenComparingInt(Task::getId);
+    private static final Comparator<Task> PRIORITY_ORDER =
+        Comparator.comparingInt((Task task) -> -task.getPriority().code).thenComparing(LIST_ORDER);
+
+    // Past this many edits, merging the sets again is cheaper than shifting
+    // the cached list once per edit
+    private static final int MAX_PATCHED_EDITS = 64;
+
+    private static final Status[] STATUSES = Status.values();
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final List<TreeSet<Task>> buckets = new ArrayList<>();
+    private final Map<TaskView, Cached> cache = new IdentityHashMap<>();
+
+    TaskViewIndex() {
+        for (int i = 0; i < STATUSES.length * PRIORITIES.length; i++) {
+            buckets.add(new TreeSet<>(LIST_ORDER));
+        }
+    }
+
+    // Replaces one version of a task with another; either may be null for
+    // an insert or a removal
+    void update(Task before, Task after) {
+        if (before != null) {
+            bucket(before).remove(before);
+        }
+        if (after != null) {
+            bucket(after).add(after);
+        }
+        Iterator<Cached> cached = cache.values().iterator();
+        while (cached.hasNext()) {
+            Cached entry = cached.next();
+            if (!(before != null && entry.view.matches(before, entry.bounds)
+                    || after != null && entry.view.matches(after, entry.bounds))) {
+                continue;
+            }
+            if (entry.edits.size() == MAX_PATCHED_EDITS) {
+                cached.remove();
+            } else {
+                entry.edits.add(new Task[] {before, after});
+            }
+        }
+    }
+
+    void clear() {
+        buckets.forEach(TreeSet::clear);
+        cache.clear();
+    }
+
+    // The view's tasks in its order, as of the given time
+    List<Task> get(TaskView view, long now) {
+        long[] bounds = view.window != null ? view.window.at(now) : null;
+        Cached cached = cache.get(view);
+        if (cached != null && sameBounds(cached.bounds, bounds)) {
+            if (!cached.edits.isEmpty()) {
+                cached = patch(cached);
+                cache.put(view, cached);
+            }
+            return cached.tasks;
+        }
+
+        List<Task> tasks = new ArrayList<>();
+        if (view.order == TaskView.Order.PRIORITY) {
+            for (int p = PRIORITIES.length - 1; p >= 0; p--) {
+                merge(parts(view, bounds, PRIORITIES[p]), tasks);
+            }
+        } else {
+            merge(parts(view, bounds, null), tasks);
+        }
+        List<Task> result = Collections.unmodifiableList(tasks);
+        cache.put(view, new Cached(view, bounds, result));
+        return result;
+    }
+
+    private static Cached patch(Cached cached) {
+        Comparator<Task> order = cached.view.order == TaskView.Order.PRIORITY ? PRIORITY_ORDER : LIST_ORDER;
+        List<Task> tasks = new ArrayList<>(cached.tasks);
+        for (Task[] edit : cached.edits) {
+            if (edit[0] != null && cached.view.matches(edit[0], cached.bounds)) {
+                int at = Collections.binarySearch(tasks, edit[0], order);
+                if (at >= 0) {
+                    tasks.remove(at);
+                }
+            }
+            if (edit[1] != null && cached.view.matches(edit[1], cached.bounds)) {
+                int at = Collections.binarySearch(tasks, edit[1], order);
+                tasks.add(at >= 0 ? at : -at - 1, edit[1]);
+            }
+        }
+        return new Cached(cached.view, cached.bounds, Collections.unmodifiableList(tasks));
+    }
+
+    // The slices of the sets a view shows that fall in its window, for one
+    // priority or for all of them
+    private List<NavigableSet<Task>> parts(TaskView view, long[] bounds, Priority only) {
+        List<NavigableSet<Task>> parts = new ArrayList<>();
+        for (Status status : STATUSES) {
+            for (Priority priority : PRIORITIES) {
+                if ((only != null && priority != only) || !view.shows(status, priority)) {
+                    continue;
+                }
+                TreeSet<Task> set = buckets.get(status.code * PRIORITIES.length + priority.code);
+                if (set.isEmpty()) {
+                    continue;
+                }
+                parts.add(bounds == null ? set
+                    : bounds[0] >= bounds[1] ? Collections.emptyNavigableSet()
+                    : set.subSet(probe(bounds[0]), true, probe(bounds[1]), false));
+            }
+        }
+        return parts;
+    }
+
+    // k-way merge by list order; k is at most the number of sets, so a
+    // linear scan for the smallest head beats a heap
+    private static void merge(List<NavigableSet<Task>> parts, List<Task> out) {
+        if (parts.size() == 1) {
+            out.addAll(parts.get(0));
+            return;
+        }
+        List<Iterator<Task>> iterators = new ArrayList<>(parts.size());
+        List<Task> heads = new ArrayList<>(parts.size());
+        for (NavigableSet<Task> part : parts) {
+            Iterator<Task> iterator = part.iterator();
+            if (iterator.hasNext()) {
+                iterators.add(iterator);
+                heads.add(iterator.next());
+            }
+        }
+        while (!heads.isEmpty()) {
+            int smallest = 0;
+            for (int i = 1; i < heads.size(); i++) {
+                if (LIST_ORDER.compare(heads.get(i), heads.get(smallest)) < 0) {
+                    smallest = i;
+                }
+            }
+            out.add(heads.get(smallest));
+            Iterator<Task> iterator = iterators.get(smallest);
+            if (iterator.hasNext()) {
+                heads.set(smallest, iterator.next());
+            } else {
+                iterators.remove(smallest);
+                heads.remove(smallest);
+            }
+        }
+    }
+
+    private TreeSet<Task> bucket(Task task) {
+        return buckets.get(task.getStatus().code * PRIORITIES.length + task.getPriority().code);
+    }
+
+    // Sorts before every task due at the same time
+    private static Task probe(long due) {
+        return new Task(Integer.MIN_VALUE, "", due, Priority.LOW, Status.PENDING);
+    }
+
+    private static boolean sameBounds(long[] a, long[] b) {
+        return a == null ? b == null : b != null && a[0] == b[0] && a[1] == b[1];
+    }
+
+    private static final class Cached {
+        final TaskView view;
+        final long[] bounds;
+        final List<Task> tasks;
+        // Edits since tasks was built, each a task before and after
+        final List<Task[]> edits = new ArrayList<>();
+
+        Cached(TaskView view, long[] bounds, List<Task> tasks) {
+            this.view = view;
+            this.bounds = bounds;
+            this.tasks = tasks;
+        }
+    }
+}
@@ -1,16 +1,26 @@
 package src;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
-import java.sql.*;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class ToDoListApp extends JFrame {
     // Modern Color Palette
@@ -27,23 +37,78 @@ public class ToDoListApp extends JFrame {
     
     // Database constants
     private static final String DB_URL = "jdbc:sqlite:tasks.db";
-    private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm";
+    private static final String DATE_FORMAT = DueDates.DATE_FORMAT;
+    // Above this many rows the list switches to windowed paging
+    private static final int LAZY_THRESHOLD = 20_000;
+    private static final long REFRESH_INTERVAL = 60_000;
+    private static final int NOTIFICATION_ROWS = 10;
+    // Search waits for a pause in typing and shows the best matches only
+    private static final int SEARCH_DEBOUNCE = 150;
+    private static final int SEARCH_LIMIT = 200;
+    private static final String[] REPEAT_CHOICES =
+        {"Does not repeat", "Daily", "Weekdays", "Weekly", "Monthly", "Every N days"};
+    private static final int REPEAT_EVERY_N_DAYS = 5;
+    // Days of completions in the dashboard's chart, today included
+    private static final int STATS_DAYS = 7;
+    // Process launch as a System.nanoTime() reading, so the startup stages
+    // are timed from the very start like any other latency
+    private static final long JVM_START = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(
+        System.currentTimeMillis() - ProcessHandle.current().info().startInstant()
+            .map(Instant::toEpochMilli).orElseGet(System::currentTimeMillis));
+    // Prints the startup times and quits once the tasks are shown: for
+    // tracking startup from a script, and for the class-data-sharing
+    // training run (see the cds profile in pom.xml)
+    private static final boolean EXIT_AFTER_STARTUP = Boolean.getBoolean("todo.exitAfterStartup");
     
     // UI Components
     private JTextField taskField;
     private JTextField dueDateField;
-    private JComboBox<String> priorityBox;
+    private JTextField searchField;
+    private JComboBox<Priority> priorityBox;
+    private JComboBox<String> repeatBox;
+    private JSpinner repeatDaysSpinner;
     private JList<Task> taskList;
-    private DefaultListModel<Task> listModel;
-    private JButton addButton, deleteButton, completeButton;
+    private TaskListModel listModel;
+    private LazyTaskListModel lazyModel;
+    private TaskListModel searchModel;
+    // Which of the saved views the list shows; answered from the store's
+    // in-memory indexes, so only available while the whole list is loaded
+    private JComboBox<TaskView> viewBox;
+    private JButton addButton, deleteButton, completeButton, snoozeButton, priorityButton;
     private JLabel statusLabel;
+    private JLabel metricsLabel;
+    private StatsPanel statsPanel;
     
     // Database and utilities
-    private Connection conn;
-    private SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT);
-    private Timer notificationTimer;
+    private TaskRepository repository;
+    private TaskStore store;
+    private Timer refreshTimer;
+    // Reminders fire at each task's due-soon and due boundaries; the
+    // schedule is kept current by loadTasks and the task actions
+    private DueNotifier notifier;
+    // The open reminder and the tasks it lists, in the order they came due
+    private JOptionPane notificationPane;
+    private final Map<Integer, Task> notifiedTasks = new LinkedHashMap<>();
+    private TaskArchiver archiver;
+    private TaskServer server;
+    private javax.swing.Timer searchTimer;
+    private javax.swing.Timer metricsTimer;
+    // Refreshes the dashboard once edits have had time to be flushed
+    private javax.swing.Timer statsTimer;
+    private int statsRequest;
+    private CompletableFuture<List<Task>> pendingSearch;
+    private boolean painted;
+    private boolean loadingStarted;
+    private boolean tasksShown;
 
     public static void main(String[] args) {
+        // Any arguments select the headless import/export mode
+        if (args.length > 0) {
+            System.exit(TaskCli.run(args, DB_URL));
+        }
+
+        EdtWatchdog.startIfEnabled();
+
         SwingUtilities.invokeLater(() -> {
             try {
                 UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -54,15 +119,76 @@ public class ToDoListApp extends JFrame {
         });
     }
 
+    // Startup is staged so the window paints at once: the database opens on
+    // its own thread while the UI is built, and services and the task load
+    // start from the first paint. The list shows a loading row, then the
+    // first page, then everything.
     public ToDoListApp() {
         configureWindow();
         initializeDatabase();
         setupUIComponents();
         setupEventHandlers();
+        notifier = new DueNotifier(dueTasks -> SwingUtilities.invokeLater(() -> showNotification(dueTasks)));
+        listModel.apply(List.of(LazyTaskListModel.PLACEHOLDER));
+        updateStatus("Loading tasks…", TEXT_COLOR);
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (!painted) {
+            painted = true;
+            Metrics.UI_FIRST_PAINT.recordSince(JVM_START);
+            SwingUtilities.invokeLater(this::startLoading);
+        }
+    }
+
+    // From the first paint, or from the window opening if that paint never
+    // comes (minimized, or a window manager that holds it back)
+    private void startLoading() {
+        if (loadingStarted) {
+            return;
+        }
+        loadingStarted = true;
         startBackgroundServices();
+        loadFirstPage();
         loadTasks();
     }
 
+    // Queued on the reader before the full load, which first has its
+    // writes to wait for, so it usually lands well ahead of it. That
+    // includes promoting overdue tasks, so the page marks its own until
+    // the full load replaces it.
+    private void loadFirstPage() {
+        onEdt(repository.loadPage(0, null, LazyTaskListModel.PAGE_SIZE), "Failed to load tasks", page -> {
+            if (!tasksShown) {
+                long now = System.currentTimeMillis();
+                List<Task> shown = new ArrayList<>(page.size());
+                for (Task task : page) {
+                    shown.add(task.getStatus() == Status.PENDING && task.getDue() < now
+                            ? task.withStatus(Status.OVERDUE) : task);
+                }
+                listModel.apply(shown);
+            }
+        });
+    }
+
+    // Called whenever a load has filled the list; the first time, this is
+    // the end of startup
+    private void tasksShown() {
+        if (tasksShown) {
+            return;
+        }
+        tasksShown = true;
+        Metrics.UI_FIRST_TASKS.recordSince(JVM_START);
+        if (EXIT_AFTER_STARTUP) {
+            System.out.printf("Startup: first paint %d ms, tasks shown %d ms after JVM start%n",
+                Metrics.UI_FIRST_PAINT.latency().max() / 1_000_000,
+                Metrics.UI_FIRST_TASKS.latency().max() / 1_000_000);
+            dispatchEvent(new WindowEvent(this, WindowEvent.WINDOW_CLOSING));
+        }
+    }
+
     private void configureWindow() {
         setTitle("Modern To-Do List");
         setSize(750, 650);
@@ -73,26 +199,11 @@ public class ToDoListApp extends JFrame {
     }
 
     private void initializeDatabase() {
-        try {
-            Class.forName("org.sqlite.JDBC");
-            conn = DriverManager.getConnection(DB_URL);
-            createTables();
-        } catch (Exception e) {
-            showError("Database Error", "Failed to initialize database: " + e.getMessage());
-        }
-    }
-
-    private void createTables() throws SQLException {
-        String sql = "CREATE TABLE IF NOT EXISTS tasks (" +
-                     "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                     "task TEXT NOT NULL, " +
-                     "due TEXT NOT NULL, " +
-                     "priority TEXT NOT NULL, " +
-                     "status TEXT NOT NULL, " +
-                     "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)";
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-        }
+        repository = new TaskRepository(DB_URL);
+        // Reads and writes queued after this wait for the connections to
+        // open and the schema to be migrated
+        onEdt(repository.open(), "Failed to initialize database", ignored -> { });
+        store = new TaskStore(repository);
     }
 
     private void setupUIComponents() {
@@ -111,10 +222,11 @@ public class ToDoListApp extends JFrame {
         add(inputPanel, BorderLayout.NORTH);
 
         // Task List
-        listModel = new DefaultListModel<>();
+        listModel = new TaskListModel();
+        searchModel = new TaskListModel();
         taskList = new JList<>(listModel);
         taskList.setCellRenderer(new ModernTaskRenderer());
-        taskList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        taskList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         taskList.setFixedCellHeight(70);
         taskList.setBackground(CARD_COLOR);
         taskList.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
@@ -122,7 +234,16 @@ public class ToDoListApp extends JFrame {
         JScrollPane scrollPane = new JScrollPane(taskList);
         scrollPane.setBorder(BorderFactory.createEmptyBorder());
         scrollPane.getViewport().setBackground(CARD_COLOR);
-        add(scrollPane, BorderLayout.CENTER);
+        scrollPane.getViewport().addChangeListener(e -> {
+            if (lazyModel != null && taskList.getModel() == lazyModel) {
+                lazyModel.prefetch(taskList.getFirstVisibleIndex(), taskList.getLastVisibleIndex());
+            }
+        });
+        JPanel listPanel = new JPanel(new BorderLayout());
+        listPanel.setBackground(BACKGROUND_COLOR);
+        listPanel.add(createSearchPanel(), BorderLayout.NORTH);
+        listPanel.add(scrollPane, BorderLayout.CENTER);
+        add(listPanel, BorderLayout.CENTER);
 
         // Button Panel
         JPanel buttonPanel = createButtonPanel();
@@ -133,10 +254,28 @@ public class ToDoListApp extends JFrame {
         statusLabel.setForeground(TEXT_COLOR);
         statusLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         
+        statsPanel = new StatsPanel();
+        JPanel statusRight = new JPanel(new BorderLayout());
+        statusRight.setOpaque(false);
+        statusRight.add(statsPanel, BorderLayout.CENTER);
+
+        JPanel statusBar = new JPanel(new BorderLayout());
+        statusBar.setBackground(BACKGROUND_COLOR);
+        statusBar.add(statusLabel, BorderLayout.CENTER);
+        statusBar.add(statusRight, BorderLayout.EAST);
+        if (Metrics.OVERLAY) {
+            // Debug overlay: live p99 latencies, for spotting slow refreshes
+            metricsLabel = new JLabel();
+            metricsLabel.setBorder(BorderFactory.createEmptyBorder(5, 15, 5, 15));
+            metricsLabel.setForeground(DISABLED_COLOR);
+            metricsLabel.setFont(new Font("Segoe UI", Font.PLAIN, 11));
+            statusRight.add(metricsLabel, BorderLayout.EAST);
+        }
+
         JPanel southPanel = new JPanel(new BorderLayout());
         southPanel.setBackground(BACKGROUND_COLOR);
         southPanel.add(buttonPanel, BorderLayout.CENTER);
-        southPanel.add(statusLabel, BorderLayout.SOUTH);
+        southPanel.add(statusBar, BorderLayout.SOUTH);
         add(southPanel, BorderLayout.SOUTH);
     }
 
@@ -183,7 +322,7 @@ public class ToDoListApp extends JFrame {
 
         gbc.gridx = 1;
         gbc.weightx = 1;
-        dueDateField = new JTextField(dateFormat.format(new Date()));
+        dueDateField = new JTextField(DueDates.format(System.currentTimeMillis()));
         dueDateField.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         dueDateField.setBorder(BorderFactory.createCompoundBorder(
             BorderFactory.createLineBorder(new Color(220, 220, 220)),
@@ -202,7 +341,7 @@ public class ToDoListApp extends JFrame {
 
         gbc.gridx = 1;
         gbc.weightx = 1;
-        priorityBox = new JComboBox<>(new String[]{"Low", "Medium", "High"});
+        priorityBox = new JComboBox<>(Priority.values());
         priorityBox.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         priorityBox.setRenderer(new PriorityComboBoxRenderer());
         priorityBox.setBackground(Color.WHITE);
@@ -212,9 +351,36 @@ public class ToDoListApp extends JFrame {
         ));
         panel.add(priorityBox, gbc);
 
+        // Repeat Combo Box, with the day count for "Every N days"
+        gbc.gridx = 0;
+        gbc.gridy = 3;
+        gbc.weightx = 0;
+        JLabel repeatLabel = new JLabel("Repeat:");
+        repeatLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        repeatLabel.setForeground(TEXT_COLOR);
+        panel.add(repeatLabel, gbc);
+
+        gbc.gridx = 1;
+        gbc.weightx = 1;
+        JPanel repeatPanel = new JPanel(new BorderLayout(10, 0));
+        repeatPanel.setBackground(CARD_COLOR);
+        repeatBox = new JComboBox<>(REPEAT_CHOICES);
+        repeatBox.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        repeatBox.setBackground(Color.WHITE);
+        repeatBox.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(new Color(220, 220, 220)),
+            BorderFactory.createEmptyBorder(5, 10, 5, 10)
+        ));
+        repeatDaysSpinner = new JSpinner(new SpinnerNumberModel(2, 2, 365, 1));
+        repeatDaysSpinner.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        repeatDaysSpinner.setEnabled(false);
+        repeatPanel.add(repeatBox, BorderLayout.CENTER);
+        repeatPanel.add(repeatDaysSpinner, BorderLayout.EAST);
+        panel.add(repeatPanel, gbc);
+
         // Add Button
         gbc.gridx = 1;
-        gbc.gridy = 3;
+        gbc.gridy = 4;
         gbc.anchor = GridBagConstraints.LINE_END;
         addButton = createModernButton("Add Task", SUCCESS_COLOR);
         panel.add(addButton, gbc);
@@ -222,15 +388,44 @@ public class ToDoListApp extends JFrame {
         return panel;
     }
 
+    private JPanel createSearchPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 0));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 20, 10, 20));
+        panel.setBackground(BACKGROUND_COLOR);
+
+        JLabel searchLabel = new JLabel("Search:");
+        searchLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        searchLabel.setForeground(TEXT_COLOR);
+        panel.add(searchLabel, BorderLayout.WEST);
+
+        searchField = new JTextField();
+        searchField.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        searchField.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(new Color(220, 220, 220)),
+            BorderFactory.createEmptyBorder(6, 10, 6, 10)
+        ));
+        panel.add(searchField, BorderLayout.CENTER);
+
+        viewBox = new JComboBox<>(TaskView.SAVED);
+        viewBox.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        panel.add(viewBox, BorderLayout.EAST);
+
+        return panel;
+    }
+
     private JPanel createButtonPanel() {
         JPanel panel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         panel.setBackground(BACKGROUND_COLOR);
 
         completeButton = createModernButton("✓ Complete", SUCCESS_COLOR);
+        snoozeButton = createModernButton("⏰ Snooze", WARNING_COLOR);
+        priorityButton = createModernButton("⚑ Priority", PRIMARY_COLOR);
         deleteButton = createModernButton("✗ Delete", DANGER_COLOR);
         
         panel.add(completeButton);
+        panel.add(snoozeButton);
+        panel.add(priorityButton);
         panel.add(deleteButton);
 
         return panel;
@@ -262,47 +457,95 @@ public class ToDoListApp extends JFrame {
     }
 
     private void setupEventHandlers() {
+        // Queued, so a paint already on its way still goes first
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                SwingUtilities.invokeLater(ToDoListApp.this::startLoading);
+            }
+        });
+
         // Add Task
         addButton.addActionListener(e -> addTask());
         taskField.addActionListener(e -> addTask());
 
         // Mark Complete
-        completeButton.addActionListener(e -> markSelectedTaskComplete());
+        completeButton.addActionListener(e -> markSelectedTasksComplete());
         taskList.addMouseListener(new MouseAdapter() {
             public void mouseClicked(MouseEvent e) {
                 if (e.getClickCount() == 2) {
-                    markSelectedTaskComplete();
+                    markSelectedTasksComplete();
                 }
             }
         });
 
+        // Snooze and re-prioritise the selection
+        snoozeButton.addActionListener(e -> snoozeSelectedTasks());
+        JPopupMenu priorityMenu = new JPopupMenu();
+        for (Priority priority : Priority.values()) {
+            JMenuItem item = new JMenuItem(priority.label);
+            item.addActionListener(e -> setSelectedTasksPriority(priority));
+            priorityMenu.add(item);
+        }
+        priorityButton.addActionListener(e ->
+            priorityMenu.show(priorityButton, 0, priorityButton.getHeight()));
+
         // Delete Task
-        deleteButton.addActionListener(e -> deleteSelectedTask());
+        deleteButton.addActionListener(e -> deleteSelectedTasks());
+
+        viewBox.addActionListener(e -> showView());
+
+        repeatBox.addActionListener(e ->
+            repeatDaysSpinner.setEnabled(repeatBox.getSelectedIndex() == REPEAT_EVERY_N_DAYS));
+
+        // Search, once typing pauses
+        searchTimer = new javax.swing.Timer(SEARCH_DEBOUNCE, e -> runSearch());
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { searchTimer.restart(); }
+            public void removeUpdate(DocumentEvent e) { searchTimer.restart(); }
+            public void changedUpdate(DocumentEvent e) { searchTimer.restart(); }
+        });
+        searchField.addActionListener(e -> {
+            searchTimer.stop();
+            runSearch();
+        });
+
+        statsTimer = new javax.swing.Timer((int) TaskStore.FLUSH_DELAY, e -> refreshStats());
+        statsTimer.setRepeats(false);
     }
 
     private void startBackgroundServices() {
         // Auto-refresh every minute
-        new Timer(true).scheduleAtFixedRate(new TimerTask() {
+        refreshTimer = new Timer(true);
+        refreshTimer.scheduleAtFixedRate(new TimerTask() {
             @Override
             public void run() {
                 SwingUtilities.invokeLater(() -> loadTasks());
             }
-        }, 60_000, 60_000);
+        }, REFRESH_INTERVAL, REFRESH_INTERVAL);
 
-        // Notification checker
-        notificationTimer = new Timer(true);
-        notificationTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                checkForDueTasks();
-            }
-        }, 0, 60_000); // Check every minute
+        // Old finished tasks move to the archive; the list drops them on
+        // the reload that follows
+        if (TaskArchiver.ENABLED) {
+            archiver = new TaskArchiver(repository, store, archived -> SwingUtilities.invokeLater(this::loadTasks));
+        }
+
+        // Local JSON API for scripts, when a port is given
+        server = TaskServer.startIfEnabled(repository);
+
+        // Latency metrics for jconsole, and in the status bar when asked for
+        Metrics.registerMBean();
+        if (metricsLabel != null) {
+            metricsTimer = new javax.swing.Timer(1000, e -> metricsLabel.setText(Metrics.overlayText()));
+            metricsTimer.start();
+        }
     }
 
     private void addTask() {
         String taskText = taskField.getText().trim();
         String dueDateText = dueDateField.getText().trim();
-        String priority = (String) priorityBox.getSelectedItem();
+        Priority priority = (Priority) priorityBox.getSelectedItem();
 
         // Validate input
         if (taskText.isEmpty()) {
@@ -310,245 +553,418 @@ public class ToDoListApp extends JFrame {
             return;
         }
 
-        if (!isValidDate(dueDateText)) {
+        long due;
+        try {
+            due = DueDates.parse(dueDateText);
+        } catch (ParseException e) {
             showError("Date Error", "Please enter a valid date in format: " + DATE_FORMAT);
             return;
         }
 
-        try (PreparedStatement pst = conn.prepareStatement(
-                "INSERT INTO tasks(task, due, priority, status) VALUES (?, ?, ?, 'Pending')")) {
-            pst.setString(1, taskText);
-            pst.setString(2, dueDateText);
-            pst.setString(3, priority);
-            pst.executeUpdate();
-            
-            loadTasks();
+        Recurrence rule = selectedRecurrence();
+        long start = System.nanoTime();
+        CompletableFuture<Task> added = rule != null
+            ? repository.addSeries(taskText, due, priority, rule)
+            : repository.add(taskText, due, priority);
+        onEdt(added, "Failed to add task", task -> {
+            store.add(task);
+            notifier.track(task);
+            showEdits();
+            Metrics.UI_ADD_TASK.recordSince(start);
             clearInputFields();
             updateStatus("Task added successfully", SUCCESS_COLOR);
-        } catch (SQLException e) {
-            showError("Database Error", "Failed to add task: " + e.getMessage());
+        });
+    }
+
+    private Recurrence selectedRecurrence() {
+        switch (repeatBox.getSelectedIndex()) {
+            case 1: return new Recurrence(Recurrence.Unit.DAYS, 1);
+            case 2: return new Recurrence(Recurrence.Unit.WEEKDAYS, 1);
+            case 3: return new Recurrence(Recurrence.Unit.WEEKS, 1);
+            case 4: return new Recurrence(Recurrence.Unit.MONTHS, 1);
+            case REPEAT_EVERY_N_DAYS:
+                return new Recurrence(Recurrence.Unit.DAYS, (Integer) repeatDaysSpinner.getValue());
+            default: return null;
         }
     }
 
     private void loadTasks() {
-        listModel.clear();
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM tasks ORDER BY due ASC")) {
-            
-            Date now = new Date();
-            while (rs.next()) {
-                Task task = new Task(
-                    rs.getInt("id"),
-                    rs.getString("task"),
-                    rs.getString("due"),
-                    rs.getString("priority"),
-                    rs.getString("status")
-                );
-                
-                // Check if task is overdue
-                if (!"Done".equals(task.getStatus())) {
-                    try {
-                        Date dueDate = dateFormat.parse(task.getDue());
-                        if (dueDate.before(now)) {
-                            task.setStatus("Overdue");
-                            updateTaskStatus(task);
-                        }
-                    } catch (Exception e) {
-                        // Date parsing error - keep original status
-                    }
+        if (lazyModel != null) {
+            loadWindowedTasks();
+            return;
+        }
+        long start = System.nanoTime();
+        onEdt(store.refresh(LAZY_THRESHOLD + 1), "Failed to load tasks", tasks -> {
+            if (tasks.size() > LAZY_THRESHOLD) {
+                // Too many rows to hold in memory; page them in instead
+                store.clear();
+                viewBox.setSelectedItem(TaskView.ALL);
+                viewBox.setEnabled(false);
+                viewBox.setToolTipText("Views need the whole list in memory; this database is paged");
+                lazyModel = new LazyTaskListModel(repository);
+                if (!isSearching()) {
+                    taskList.setModel(lazyModel);
                 }
-                
-                listModel.addElement(task);
+                listModel.apply(List.of());
+                loadWindowedTasks();
+                return;
             }
-            
-            updateStatus("Loaded " + listModel.size() + " tasks", TEXT_COLOR);
-        } catch (SQLException e) {
-            showError("Database Error", "Failed to load tasks: " + e.getMessage());
+            notifier.sync(tasks);
+            listModel.apply(store.view(selectedView()));
+            Metrics.UI_REFRESH.recordSince(start, tasks.size());
+            if (isSearching()) {
+                runSearch();
+            } else {
+                updateStatus("Loaded " + listModel.getSize() + " tasks", TEXT_COLOR);
+            }
+            tasksShown();
+            refreshStats();
+        });
+    }
+
+    private void loadWindowedTasks() {
+        long start = System.nanoTime();
+        lazyModel.reload(() -> {
+            Metrics.UI_REFRESH.recordSince(start);
+            tasksShown();
+            refreshStats();
+            if (isSearching()) {
+                runSearch();
+                return;
+            }
+            lazyModel.prefetch(taskList.getFirstVisibleIndex(), taskList.getLastVisibleIndex());
+            updateStatus("Loaded " + lazyModel.getSize() + " tasks", TEXT_COLOR);
+        });
+
+        // Reminders only need the open tasks that come due before the next
+        // refresh; later ones are picked up by a later refresh
+        long horizon = System.currentTimeMillis() + DueNotifier.DUE_SOON_WINDOW + 2 * REFRESH_INTERVAL;
+        onEdt(repository.loadOpenDueBefore(horizon), "Failed to load tasks", notifier::sync);
+    }
+
+    // Shows edits just made through the store. Pages are read straight from
+    // the database, so the windowed list saves them first.
+    private void showEdits() {
+        if (lazyModel != null) {
+            onEdt(store.flush(), "Failed to save tasks", ignored -> loadWindowedTasks());
+        } else {
+            listModel.apply(store.view(selectedView()));
+            if (isSearching()) {
+                runSearch();
+            }
+            // After the store's own flush, so a burst of edits is still
+            // written in one go
+            statsTimer.restart();
+        }
+    }
+
+    // The dashboard shows the summary tables, so edits still waiting in
+    // the store are written first. Only the newest request is shown.
+    private void refreshStats() {
+        statsTimer.stop();
+        int request = ++statsRequest;
+        onEdt(store.flush().thenCompose(ignored -> repository.stats(STATS_DAYS)), "Failed to load statistics", stats -> {
+            if (request == statsRequest) {
+                statsPanel.show(stats);
+            }
+        });
+    }
+
+    private TaskView selectedView() {
+        return (TaskView) viewBox.getSelectedItem();
+    }
+
+    // Switching views reads no rows: the store answers from its indexes,
+    // and from its cache for a view shown before and not edited since
+    private void showView() {
+        if (lazyModel != null) {
+            return;
         }
+        long start = System.nanoTime();
+        if (!searchField.getText().isEmpty()) {
+            // A view replaces the search results
+            searchField.setText("");
+            searchTimer.stop();
+            runSearch();
+        }
+        listModel.apply(store.view(selectedView()));
+        Metrics.UI_VIEW.recordSince(start, listModel.getSize());
+        updateStatus(listModel.getSize() + " tasks in " + selectedView(), TEXT_COLOR);
+    }
+
+    private boolean isSearching() {
+        return taskList.getModel() == searchModel;
     }
 
-    private void markSelectedTaskComplete() {
-        Task selected = taskList.getSelectedValue();
-        if (selected == null) {
+    // Runs the search field's query off the EDT. A newer query cancels the
+    // older one, interrupting it if it is already running, and late
+    // results are dropped.
+    private void runSearch() {
+        if (pendingSearch != null) {
+            pendingSearch.cancel(false);
+            pendingSearch = null;
+        }
+        String query = searchField.getText().trim();
+        if (query.isEmpty()) {
+            if (isSearching()) {
+                taskList.setModel(lazyModel != null ? lazyModel : listModel);
+                searchModel.apply(List.of());
+                updateStatus("Loaded " + taskList.getModel().getSize() + " tasks", TEXT_COLOR);
+            }
+            return;
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<List<Task>> search = repository.search(query, SEARCH_LIMIT);
+        pendingSearch = search;
+        search.whenComplete((tasks, error) -> SwingUtilities.invokeLater(() -> {
+            if (search != pendingSearch) {
+                return;
+            }
+            pendingSearch = null;
+            if (error != null) {
+                showError("Database Error", "Search failed: " + rootCause(error).getMessage());
+                return;
+            }
+            searchModel.apply(store.overlay(tasks));
+            if (!isSearching()) {
+                taskList.setModel(searchModel);
+            }
+            Metrics.UI_SEARCH.recordSince(start, tasks.size());
+            updateStatus(searchModel.getSize() + " tasks match \"" + query + "\"", TEXT_COLOR);
+        }));
+    }
+
+    // The selected tasks, leaving out rows still loading. Actions on a
+    // selection go through the store as one batch of edits, so however many
+    // tasks are selected they cost one transaction and one list update.
+    private List<Task> selectedTasks() {
+        List<Task> selected = new ArrayList<>();
+        for (Task task : taskList.getSelectedValuesList()) {
+            if (!LazyTaskListModel.isPlaceholder(task)) {
+                selected.add(task);
+            }
+        }
+        return selected;
+    }
+
+    private void markSelectedTasksComplete() {
+        List<Task> selected = selectedTasks();
+        if (selected.isEmpty()) {
             showError("Selection Error", "Please select a task to mark complete");
             return;
         }
 
-        selected.setStatus("Done");
-        updateTaskStatus(selected);
-        loadTasks();
-        updateStatus("Task marked as complete", SUCCESS_COLOR);
+        store.setStatus(selected, Status.DONE);
+        selected.forEach(task -> notifier.untrack(task.getId()));
+        showEdits();
+        advanceSeries(selected);
+        updateStatus(selected.size() == 1 ? "Task marked as complete" : selected.size() + " tasks marked complete",
+            SUCCESS_COLOR);
+    }
+
+    private void snoozeSelectedTasks() {
+        List<Task> selected = selectedTasks();
+        if (selected.isEmpty()) {
+            showError("Selection Error", "Please select a task to snooze");
+            return;
+        }
+        snoozeTasks(selected);
+    }
+
+    private void setSelectedTasksPriority(Priority priority) {
+        List<Task> selected = selectedTasks();
+        if (selected.isEmpty()) {
+            showError("Selection Error", "Please select a task to change");
+            return;
+        }
+
+        store.setPriority(selected, priority);
+        showEdits();
+        updateStatus(selected.size() + (selected.size() == 1 ? " task" : " tasks") + " set to " + priority + " priority",
+            SUCCESS_COLOR);
     }
 
-    private void deleteSelectedTask() {
-        Task selected = taskList.getSelectedValue();
-        if (selected == null) {
+    private void deleteSelectedTasks() {
+        List<Task> selected = selectedTasks();
+        if (selected.isEmpty()) {
             showError("Selection Error", "Please select a task to delete");
             return;
         }
 
+        String question = selected.size() == 1
+            ? "Delete task: " + selected.get(0).getDescription() + "?"
+            : "Delete " + selected.size() + " tasks?";
+        if (selected.stream().anyMatch(Task::isRecurring)) {
+            question += "\nDeleting a recurring task's latest occurrence stops it repeating.";
+        }
         int confirm = JOptionPane.showConfirmDialog(
             this, 
-            "Delete task: " + selected.getDescription() + "?", 
+            question, 
             "Confirm Delete", 
             JOptionPane.YES_NO_OPTION,
             JOptionPane.WARNING_MESSAGE
         );
         
         if (confirm == JOptionPane.YES_OPTION) {
-            try (PreparedStatement pst = conn.prepareStatement("DELETE FROM tasks WHERE id=?")) {
-                pst.setInt(1, selected.getId());
-                pst.executeUpdate();
-                loadTasks();
-                updateStatus("Task deleted successfully", SUCCESS_COLOR);
-            } catch (SQLException e) {
-                showError("Database Error", "Failed to delete task: " + e.getMessage());
-            }
+            store.delete(selected);
+            selected.forEach(task -> notifier.untrack(task.getId()));
+            showEdits();
+            updateStatus(selected.size() == 1 ? "Task deleted successfully" : selected.size() + " tasks deleted",
+                SUCCESS_COLOR);
         }
     }
 
-    private void checkForDueTasks() {
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(
-                 "SELECT * FROM tasks WHERE status NOT IN ('Done', 'Dismissed')")) {
-            
-            Date now = new Date();
-            List<Task> dueTasks = new ArrayList<>();
-            
-            while (rs.next()) {
-                try {
-                    Date dueDate = dateFormat.parse(rs.getString("due"));
-                    if (dueDate.before(now) || isDueSoon(dueDate, now)) {
-                        dueTasks.add(new Task(
-                            rs.getInt("id"),
-                            rs.getString("task"),
-                            rs.getString("due"),
-                            rs.getString("priority"),
-                            rs.getString("status")
-                        ));
-                    }
-                } catch (Exception e) {
-                    // Skip tasks with invalid dates
+    // Shows due tasks in one modeless reminder. Batches that arrive while
+    // it is open are added to it rather than stacking more dialogs, and
+    // the list behind it stays usable.
+    private void showNotification(List<Task> dueTasks) {
+        Toolkit.getDefaultToolkit().beep();
+        for (Task task : dueTasks) {
+            notifiedTasks.put(task.getId(), task);
+        }
+        if (notificationPane == null) {
+            Object[] options = {"Mark Complete", "Snooze (1 hour)", "Dismiss"};
+            JOptionPane pane = new JOptionPane(
+                null,
+                JOptionPane.WARNING_MESSAGE,
+                JOptionPane.YES_NO_CANCEL_OPTION,
+                null,
+                options,
+                options[0]
+            );
+            JDialog dialog = pane.createDialog(this, "Task Due Notification");
+            dialog.setModal(false);
+            pane.addPropertyChangeListener(JOptionPane.VALUE_PROPERTY, e -> {
+                if (e.getNewValue() != JOptionPane.UNINITIALIZED_VALUE) {
+                    dialog.dispose();
+                    notificationAnswered(Arrays.asList(options).indexOf(e.getNewValue()));
                 }
-            }
-            
-            if (!dueTasks.isEmpty()) {
-                SwingUtilities.invokeLater(() -> showNotification(dueTasks));
-            }
-        } catch (SQLException e) {
-            System.err.println("Error checking due tasks: " + e.getMessage());
+            });
+            notificationPane = pane;
         }
+        notificationPane.setMessage(notificationMessage());
+        Window dialog = SwingUtilities.getWindowAncestor(notificationPane);
+        dialog.pack();
+        dialog.setVisible(true);
     }
 
-    private boolean isDueSoon(Date dueDate, Date now) {
-        long oneHour = 60 * 60 * 1000;
-        return dueDate.getTime() - now.getTime() <= oneHour;
-    }
-
-    private void showNotification(List<Task> dueTasks) {
-        // Play notification sound
-        Toolkit.getDefaultToolkit().beep();
-        
+    // A long backlog is summarised; the actions still apply to all of it
+    private String notificationMessage() {
         StringBuilder message = new StringBuilder("<html><div style='font-size:14px'>");
         message.append("<b>The following tasks are due:</b><ul style='margin-top:5px'>");
-        
-        for (Task task : dueTasks) {
-            String dueStatus = task.getStatus().equals("Overdue") ? " (OVERDUE!)" : "";
+        int shown = 0;
+        for (Task task : notifiedTasks.values()) {
+            if (shown++ == NOTIFICATION_ROWS) {
+                message.append("<li>… and ").append(notifiedTasks.size() - NOTIFICATION_ROWS).append(" more</li>");
+                break;
+            }
+            String dueStatus = task.getStatus() == Status.OVERDUE ? " (OVERDUE!)" : "";
             message.append("<li style='margin-bottom:3px'>")
                   .append(task.getDescription())
-                  .append(" - Due: ").append(task.getDue())
+                  .append(" - Due: ").append(DueDates.format(task.getDue()))
                   .append(dueStatus).append("</li>");
         }
         message.append("</ul></div></html>");
-        
-        Object[] options = {"Mark Complete", "Snooze (1 hour)", "Dismiss"};
-        int choice = JOptionPane.showOptionDialog(
-            this,
-            message.toString(),
-            "Task Due Notification",
-            JOptionPane.YES_NO_CANCEL_OPTION,
-            JOptionPane.WARNING_MESSAGE,
-            null,
-            options,
-            options[0]
-        );
-        
+        return message.toString();
+    }
+
+    // Closing the reminder leaves the tasks as they are
+    private void notificationAnswered(int choice) {
+        List<Task> dueTasks = new ArrayList<>(notifiedTasks.values());
+        notifiedTasks.clear();
+        notificationPane = null;
+        // Tasks finished from the list while the reminder was open
+        dueTasks.removeIf(task -> !notifier.isTracked(task.getId()));
+        if (dueTasks.isEmpty()) {
+            return;
+        }
+
         if (choice == 0) { // Mark Complete
-            for (Task task : dueTasks) {
-                task.setStatus("Done");
-                updateTaskStatus(task);
-            }
+            store.setStatus(dueTasks, Status.DONE);
+            dueTasks.forEach(task -> notifier.untrack(task.getId()));
+            showEdits();
+            advanceSeries(dueTasks);
             updateStatus(dueTasks.size() + " tasks marked complete", SUCCESS_COLOR);
         } else if (choice == 1) { // Snooze
             snoozeTasks(dueTasks);
         } else if (choice == 2) { // Dismiss
             dismissTasks(dueTasks);
         }
-        
-        loadTasks();
-    }
-
-    private void updateTaskStatus(Task task) {
-        try (PreparedStatement pst = conn.prepareStatement(
-                "UPDATE tasks SET status=? WHERE id=?")) {
-            pst.setString(1, task.getStatus());
-            pst.setInt(2, task.getId());
-            pst.executeUpdate();
-        } catch (SQLException e) {
-            showError("Database Error", "Failed to update task status: " + e.getMessage());
-        }
     }
 
     private void snoozeTasks(List<Task> tasks) {
-        try (PreparedStatement pst = conn.prepareStatement(
-                "UPDATE tasks SET due=? WHERE id=?")) {
-            String newDue = dateFormat.format(new Date(System.currentTimeMillis() + 60 * 60 * 1000));
-            
-            for (Task task : tasks) {
-                pst.setString(1, newDue);
-                pst.setInt(2, task.getId());
-                pst.executeUpdate();
-            }
-            updateStatus(tasks.size() + " tasks snoozed for 1 hour", WARNING_COLOR);
-        } catch (SQLException e) {
-            showError("Database Error", "Failed to snooze tasks: " + e.getMessage());
-        }
+        // Whole minutes, matching what DATE_FORMAT stores
+        long oneHour = 60 * 60 * 1000;
+        long newDue = (System.currentTimeMillis() + oneHour) / 60_000 * 60_000;
+        store.snooze(tasks, newDue);
+        tasks.forEach(task -> notifier.snooze(task, newDue));
+        showEdits();
+        updateStatus(tasks.size() + " tasks snoozed for 1 hour", WARNING_COLOR);
     }
 
     private void dismissTasks(List<Task> tasks) {
-        try (PreparedStatement pst = conn.prepareStatement(
-                "UPDATE tasks SET status='Dismissed' WHERE id=?")) {
-            for (Task task : tasks) {
-                pst.setInt(1, task.getId());
-                pst.executeUpdate();
+        store.setStatus(tasks, Status.DISMISSED);
+        tasks.forEach(task -> notifier.untrack(task.getId()));
+        showEdits();
+        advanceSeries(tasks);
+        updateStatus(tasks.size() + " tasks dismissed", DISABLED_COLOR);
+    }
+
+    // Finishing an open occurrence of a recurring task brings on the next
+    // one, shown here when it is already within the lookahead window
+    private void advanceSeries(List<Task> finished) {
+        List<Task> recurring = new ArrayList<>();
+        for (Task task : finished) {
+            if (task.isRecurring() && task.getStatus().isOpen()) {
+                recurring.add(task);
             }
-            updateStatus(tasks.size() + " tasks dismissed", DISABLED_COLOR);
-        } catch (SQLException e) {
-            showError("Database Error", "Failed to dismiss tasks: " + e.getMessage());
         }
+        if (recurring.isEmpty()) {
+            return;
+        }
+        onEdt(repository.advanceSeries(recurring), "Failed to schedule the next occurrence", next -> {
+            if (next.isEmpty()) {
+                return;
+            }
+            next.forEach(store::add);
+            next.forEach(notifier::track);
+            showEdits();
+        });
     }
 
     private void clearInputFields() {
         taskField.setText("");
-        dueDateField.setText(dateFormat.format(new Date()));
+        dueDateField.setText(DueDates.format(System.currentTimeMillis()));
         priorityBox.setSelectedIndex(0);
+        repeatBox.setSelectedIndex(0);
         taskField.requestFocus();
     }
 
-    private boolean isValidDate(String dateStr) {
-        try {
-            dateFormat.parse(dateStr);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
     private void updateStatus(String message, Color color) {
         statusLabel.setText(message);
         statusLabel.setForeground(color);
     }
 
+    // Runs the callback on the EDT once the database work finishes, or
+    // reports the failure there with the given message prefix
+    private <T> void onEdt(CompletableFuture<T> future, String failure, Consumer<T> onSuccess) {
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                showError("Database Error", failure + ": " + rootCause(error).getMessage());
+            } else {
+                onSuccess.accept(result);
+            }
+        }));
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
     private void showError(String title, String message) {
         JOptionPane.showMessageDialog(
             this,
@@ -561,166 +977,266 @@ public class ToDoListApp extends JFrame {
     @Override
     protected void processWindowEvent(WindowEvent e) {
         if (e.getID() == WindowEvent.WINDOW_CLOSING) {
-            try {
-                if (conn != null && !conn.isClosed()) {
-                    conn.close();
-                }
-                if (notificationTimer != null) {
-                    notificationTimer.cancel();
-                }
-            } catch (SQLException ex) {
-                ex.printStackTrace();
+            if (refreshTimer != null) {
+                refreshTimer.cancel();
+            }
+            if (searchTimer != null) {
+                searchTimer.stop();
+            }
+            if (metricsTimer != null) {
+                metricsTimer.stop();
+            }
+            if (statsTimer != null) {
+                statsTimer.stop();
+            }
+            if (notifier != null) {
+                notifier.close();
+            }
+            if (archiver != null) {
+                archiver.close();
+            }
+            if (server != null) {
+                server.close();
+            }
+            // Unsaved edits are written before the connection closes
+            if (store != null) {
+                store.close();
+            }
+            if (repository != null) {
+                repository.close();
             }
         }
         super.processWindowEvent(e);
     }
 
-    private static class Task {
-        private int id;
-        private String description;
-        private String due;
-        private String priority;
-        private String status;
-
-        public Task(int id, String description, String due, String priority, String status) {
-            this.id = id;
-            this.description = description;
-            this.due = due;
-            this.priority = priority;
-            this.status = status;
+    // Paints each row straight onto the list's Graphics. Fonts, colours,
+    // icons and label widths are built once, and formatted due dates are
+    // kept in a small direct-mapped cache, so a repaint allocates nothing
+    // per cell and there is no component tree to lay out.
+    static class ModernTaskRenderer extends JComponent implements ListCellRenderer<Task> {
+        private static final Color SELECTED_COLOR = new Color(240, 248, 255); // Alice Blue
+        private static final Color SEPARATOR_COLOR = new Color(240, 240, 240);
+        private static final Color CHECKBOX_COLOR = new Color(160, 160, 160);
+
+        private static final Font DESCRIPTION_FONT = new Font("Segoe UI", Font.PLAIN, 16);
+        private static final Font DONE_FONT = DESCRIPTION_FONT.deriveFont(Font.ITALIC);
+        private static final Font OVERDUE_FONT = DESCRIPTION_FONT.deriveFont(Font.BOLD);
+        private static final Font DETAIL_FONT = new Font("Segoe UI", Font.PLAIN, 12);
+
+        private static final int ICON_SIZE = 8;
+        private static final Image DUE_ICON = createColoredCircleIcon(ICON_SIZE, DISABLED_COLOR);
+        private static final Image OVERDUE_ICON = createColoredCircleIcon(ICON_SIZE, DANGER_COLOR);
+        private static final Image[] PRIORITY_ICONS = new Image[Priority.values().length];
+        private static final Color[] PRIORITY_COLORS = new Color[Priority.values().length];
+        static {
+            for (Priority priority : Priority.values()) {
+                PRIORITY_COLORS[priority.ordinal()] = priorityColor(priority);
+                PRIORITY_ICONS[priority.ordinal()] = createColoredCircleIcon(ICON_SIZE, priorityColor(priority));
+            }
         }
 
-        // Getters and setters
-        public int getId() { return id; }
-        public String getDescription() { return description; }
-        public String getDue() { return due; }
-        public String getPriority() { return priority; }
-        public String getStatus() { return status; }
-        public void setStatus(String status) { this.status = status; }
+        private static final String DUE_PREFIX = "Due: ";
+        private static final String REPEATS = "Repeats";
+        private static final int PAD_X = 15;
+        private static final int PAD_Y = 10;
+        private static final int CHECKBOX_SIZE = 13;
+        private static final int TEXT_X = PAD_X + CHECKBOX_SIZE + 10;
+        private static final int ICON_GAP = 5;
+        private static final int DETAIL_GAP = 10;
+        private static final int[] CHECK_X = {3, 6, 11};
+        private static final int[] CHECK_Y = {7, 10, 3};
+
+        private static final int DUE_CACHE_SIZE = 256;
+        private final long[] dueKeys = new long[DUE_CACHE_SIZE];
+        private final String[] dueTexts = new String[DUE_CACHE_SIZE];
+        private final int[] dueWidths = new int[DUE_CACHE_SIZE];
+
+        // Measured on first paint
+        private FontMetrics descriptionMetrics;
+        private FontMetrics detailMetrics;
+        private int duePrefixWidth;
+        private int repeatsWidth;
+        private final int[] priorityWidths = new int[Priority.values().length];
+        private Object textAntialiasing;
+
+        // The row being painted
+        private Task task;
+        private boolean selected;
 
-        @Override
-        public String toString() {
-            return description;
+        public ModernTaskRenderer() {
+            setOpaque(true);
+            Arrays.fill(dueKeys, Long.MIN_VALUE);
         }
-    }
 
-    private static class ModernTaskRenderer extends JPanel implements ListCellRenderer<Task> {
-        private JLabel descriptionLabel;
-        private JLabel dueLabel;
-        private JLabel priorityLabel;
-        private JCheckBox checkBox;
+        @Override
+        public Component getListCellRendererComponent(JList<? extends Task> list, Task task,
+                int index, boolean isSelected, boolean cellHasFocus) {
+            this.task = task;
+            this.selected = isSelected;
+            return this;
+        }
 
-        public ModernTaskRenderer() {
-            setLayout(new BorderLayout(10, 5));
-            setOpaque(true);
-            setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createMatteBorder(0, 0, 1, 0, new Color(240, 240, 240)),
-                BorderFactory.createEmptyBorder(10, 15, 10, 15)
-            ));
+        @Override
+        protected void paintComponent(Graphics g) {
+            long start = System.nanoTime();
+            paintRow((Graphics2D) g);
+            Metrics.UI_PAINT_ROW.recordSince(start);
+        }
 
-            // Checkbox
-            checkBox = new JCheckBox();
-            checkBox.setOpaque(false);
+        private void paintRow(Graphics2D g2d) {
+            if (descriptionMetrics == null) {
+                measure(g2d);
+            }
+            int width = getWidth();
+            int height = getHeight();
+
+            g2d.setColor(selected ? SELECTED_COLOR : CARD_COLOR);
+            g2d.fillRect(0, 0, width, height);
+            g2d.setColor(SEPARATOR_COLOR);
+            g2d.fillRect(0, height - 1, width, 1);
+            if (task == null) {
+                return;
+            }
 
-            // Description
-            descriptionLabel = new JLabel();
-            descriptionLabel.setFont(new Font("Segoe UI", Font.PLAIN, 16));
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, textAntialiasing);
 
-            // Details panel
-            JPanel detailsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
-            detailsPanel.setOpaque(false);
-            
-            dueLabel = new JLabel();
-            dueLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
-            dueLabel.setIcon(new ImageIcon(createColoredCircleIcon(8, DISABLED_COLOR)));
-            dueLabel.setIconTextGap(5);
-            
-            priorityLabel = new JLabel();
-            priorityLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
-            priorityLabel.setIconTextGap(5);
+            if (LazyTaskListModel.isPlaceholder(task)) {
+                g2d.setFont(DESCRIPTION_FONT);
+                g2d.setColor(DISABLED_COLOR);
+                g2d.drawString(task.getDescription(), TEXT_X, PAD_Y + descriptionMetrics.getAscent());
+                return;
+            }
 
-            detailsPanel.add(dueLabel);
-            detailsPanel.add(priorityLabel);
+            Status status = task.getStatus();
+            Priority priority = task.getPriority();
+            Color descriptionColor;
+            Color dueColor;
+            Color priorityColor;
+            Font descriptionFont;
+            Image dueIcon = DUE_ICON;
+            if (status == Status.DONE) {
+                descriptionFont = DONE_FONT;
+                descriptionColor = dueColor = priorityColor = DISABLED_COLOR;
+            } else if (status == Status.OVERDUE) {
+                descriptionFont = OVERDUE_FONT;
+                descriptionColor = dueColor = DANGER_COLOR;
+                priorityColor = PRIORITY_COLORS[priority.ordinal()];
+                dueIcon = OVERDUE_ICON;
+            } else {
+                descriptionFont = DESCRIPTION_FONT;
+                descriptionColor = dueColor = TEXT_COLOR;
+                priorityColor = PRIORITY_COLORS[priority.ordinal()];
+            }
 
-            JPanel textPanel = new JPanel(new BorderLayout(0, 5));
-            textPanel.add(descriptionLabel, BorderLayout.NORTH);
-            textPanel.add(detailsPanel, BorderLayout.SOUTH);
-            textPanel.setOpaque(false);
+            // Checkbox
+            int boxY = (height - CHECKBOX_SIZE) / 2;
+            if (status == Status.DONE) {
+                g2d.setColor(SUCCESS_COLOR);
+                g2d.fillRoundRect(PAD_X, boxY, CHECKBOX_SIZE, CHECKBOX_SIZE, 4, 4);
+                g2d.setColor(Color.WHITE);
+                g2d.translate(PAD_X, boxY);
+                g2d.drawPolyline(CHECK_X, CHECK_Y, CHECK_X.length);
+                g2d.translate(-PAD_X, -boxY);
+            } else {
+                g2d.setColor(CHECKBOX_COLOR);
+                g2d.drawRoundRect(PAD_X, boxY, CHECKBOX_SIZE - 1, CHECKBOX_SIZE - 1, 4, 4);
+            }
 
-            add(checkBox, BorderLayout.WEST);
-            add(textPanel, BorderLayout.CENTER);
+            // Description, clipped to the row
+            g2d.clipRect(TEXT_X, 0, Math.max(0, width - TEXT_X - PAD_X), height);
+            g2d.setFont(descriptionFont);
+            g2d.setColor(descriptionColor);
+            g2d.drawString(task.getDescription(), TEXT_X, PAD_Y + descriptionMetrics.getAscent());
+
+            // Due date and priority line
+            int baseline = height - 1 - PAD_Y - detailMetrics.getDescent();
+            int iconY = baseline - detailMetrics.getAscent() / 2 - ICON_SIZE / 2;
+            int slot = dueSlot(task.getDue());
+            int x = TEXT_X;
+            g2d.setFont(DETAIL_FONT);
+            g2d.drawImage(dueIcon, x, iconY, null);
+            x += ICON_SIZE + ICON_GAP;
+            g2d.setColor(dueColor);
+            g2d.drawString(DUE_PREFIX, x, baseline);
+            x += duePrefixWidth;
+            g2d.drawString(dueTexts[slot], x, baseline);
+            x += dueWidths[slot] + DETAIL_GAP;
+
+            g2d.drawImage(PRIORITY_ICONS[priority.ordinal()], x, iconY, null);
+            x += ICON_SIZE + ICON_GAP;
+            g2d.setColor(priorityColor);
+            g2d.drawString(priority.label, x, baseline);
+
+            if (task.isRecurring()) {
+                x += priorityWidths[priority.ordinal()] + DETAIL_GAP;
+                g2d.setColor(DISABLED_COLOR);
+                g2d.drawString(REPEATS, x, baseline);
+            }
         }
 
-        @Override
-        public Component getListCellRendererComponent(JList<? extends Task> list, Task task, 
-                int index, boolean isSelected, boolean cellHasFocus) {
-            
-            // Set background
-            if (isSelected) {
-                setBackground(new Color(240, 248, 255)); // Alice Blue
-            } else {
-                setBackground(CARD_COLOR);
+        private void measure(Graphics2D g2d) {
+            descriptionMetrics = g2d.getFontMetrics(DESCRIPTION_FONT);
+            detailMetrics = g2d.getFontMetrics(DETAIL_FONT);
+            duePrefixWidth = detailMetrics.stringWidth(DUE_PREFIX);
+            repeatsWidth = detailMetrics.stringWidth(REPEATS);
+            for (Priority priority : Priority.values()) {
+                priorityWidths[priority.ordinal()] = detailMetrics.stringWidth(priority.label);
+            }
+            Object desktopHints = Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+            textAntialiasing = desktopHints instanceof Map
+                ? ((Map<?, ?>) desktopHints).get(RenderingHints.KEY_TEXT_ANTIALIASING)
+                : null;
+            if (textAntialiasing == null) {
+                textAntialiasing = RenderingHints.VALUE_TEXT_ANTIALIAS_ON;
             }
+        }
 
-            // Set task information
-            descriptionLabel.setText(task.getDescription());
-            
-            // Format due date
-            dueLabel.setText("Due: " + task.getDue());
-            
-            // Set priority with colored circle
-            priorityLabel.setText(task.getPriority());
-            priorityLabel.setIcon(new ImageIcon(createPriorityIcon(task.getPriority())));
-            
-            // Set status
-            checkBox.setSelected("Done".equals(task.getStatus()));
-            
-            // Style based on status
-            if ("Done".equals(task.getStatus())) {
-                descriptionLabel.setForeground(DISABLED_COLOR);
-                descriptionLabel.setFont(descriptionLabel.getFont().deriveFont(Font.ITALIC));
-                dueLabel.setForeground(DISABLED_COLOR);
-                priorityLabel.setForeground(DISABLED_COLOR);
-            } 
-            else if ("Overdue".equals(task.getStatus())) {
-                descriptionLabel.setForeground(DANGER_COLOR);
-                descriptionLabel.setFont(descriptionLabel.getFont().deriveFont(Font.BOLD));
-                dueLabel.setForeground(DANGER_COLOR);
-                dueLabel.setIcon(new ImageIcon(createColoredCircleIcon(8, DANGER_COLOR)));
-            }
-            else {
-                descriptionLabel.setForeground(TEXT_COLOR);
-                dueLabel.setForeground(TEXT_COLOR);
-                
-                // Priority colors
-                switch (task.getPriority()) {
-                    case "High":
-                        priorityLabel.setForeground(DANGER_COLOR);
-                        break;
-                    case "Medium":
-                        priorityLabel.setForeground(WARNING_COLOR);
-                        break;
-                    case "Low":
-                        priorityLabel.setForeground(PRIMARY_COLOR);
-                        break;
-                }
+        // Formats a due time at most once per cache slot
+        private int dueSlot(long due) {
+            long minute = due / 60_000;
+            int slot = (int) (minute ^ (minute >>> 8)) & (DUE_CACHE_SIZE - 1);
+            if (dueKeys[slot] != due) {
+                dueKeys[slot] = due;
+                dueTexts[slot] = DueDates.format(due);
+                dueWidths[slot] = detailMetrics.stringWidth(dueTexts[slot]);
             }
+            return slot;
+        }
 
-            return this;
+        @Override
+        public Dimension getPreferredSize() {
+            if (descriptionMetrics == null || task == null) {
+                return new Dimension(TEXT_X, 70);
+            }
+            int detailWidth = 2 * (ICON_SIZE + ICON_GAP) + duePrefixWidth + dueWidths[dueSlot(task.getDue())]
+                + DETAIL_GAP + priorityWidths[task.getPriority().ordinal()]
+                + (task.isRecurring() ? DETAIL_GAP + repeatsWidth : 0);
+            int textWidth = Math.max(descriptionMetrics.stringWidth(task.getDescription()), detailWidth);
+            return new Dimension(TEXT_X + textWidth + PAD_X, 70);
         }
 
-        private Image createPriorityIcon(String priority) {
-            Color color;
+        // Same shortcuts as DefaultListCellRenderer: a rubber stamp never
+        // needs layout, repaint requests or property change events
+        @Override public void invalidate() { }
+        @Override public void validate() { }
+        @Override public void revalidate() { }
+        @Override public void repaint(long tm, int x, int y, int width, int height) { }
+        @Override public void repaint(Rectangle r) { }
+        @Override public void repaint() { }
+        @Override protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) { }
+        @Override public void firePropertyChange(String propertyName, boolean oldValue, boolean newValue) { }
+
+        private static Color priorityColor(Priority priority) {
             switch (priority) {
-                case "High": color = DANGER_COLOR; break;
-                case "Medium": color = WARNING_COLOR; break;
-                case "Low": color = PRIMARY_COLOR; break;
-                default: color = DISABLED_COLOR;
+                case HIGH: return DANGER_COLOR;
+                case MEDIUM: return WARNING_COLOR;
+                case LOW: return PRIMARY_COLOR;
+                default: return DISABLED_COLOR;
             }
-            return createColoredCircleIcon(8, color);
         }
 
-        private Image createColoredCircleIcon(int diameter, Color color) {
+        private static Image createColoredCircleIcon(int diameter, Color color) {
             try {
                 BufferedImage image = new BufferedImage(diameter, diameter, BufferedImage.TYPE_INT_ARGB);
                 Graphics2D g2d = image.createGraphics();
@@ -735,6 +1251,87 @@ public class ToDoListApp extends JFrame {
         }
     }
 
+    // The dashboard beside the status line: overdue and open totals, how
+    // many tasks were done today and a bar for each of the last days. The
+    // tooltip breaks the counts down by status and priority.
+    static class StatsPanel extends JPanel {
+        private static final Font FONT = new Font("Segoe UI", Font.PLAIN, 12);
+        private static final int BAR_WIDTH = 5;
+        private static final int BAR_GAP = 2;
+        private static final int CHART_HEIGHT = 14;
+
+        private final JLabel summary = new JLabel();
+        private final JComponent chart = new JComponent() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                paintChart(g);
+            }
+        };
+        private TaskStats stats;
+
+        StatsPanel() {
+            super(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+            setOpaque(false);
+            setBorder(BorderFactory.createEmptyBorder(5, 15, 5, 15));
+            summary.setFont(FONT);
+            summary.setForeground(TEXT_COLOR);
+            chart.setPreferredSize(new Dimension(STATS_DAYS * (BAR_WIDTH + BAR_GAP), CHART_HEIGHT));
+            add(summary);
+            add(chart);
+        }
+
+        void show(TaskStats stats) {
+            this.stats = stats;
+            int overdue = stats.count(Status.OVERDUE);
+            summary.setText(overdue + " overdue · " + stats.open() + " open · "
+                + stats.completed(0) + " done today");
+            summary.setForeground(overdue > 0 ? DANGER_COLOR : TEXT_COLOR);
+            String tooltip = tooltip(stats);
+            summary.setToolTipText(tooltip);
+            chart.setToolTipText(tooltip);
+            chart.repaint();
+        }
+
+        private void paintChart(Graphics g) {
+            if (stats == null) {
+                return;
+            }
+            int most = 1;
+            for (int day = 0; day < stats.days(); day++) {
+                most = Math.max(most, stats.completed(day));
+            }
+            for (int day = 0; day < stats.days(); day++) {
+                int x = (stats.days() - 1 - day) * (BAR_WIDTH + BAR_GAP);
+                int height = Math.max(1, stats.completed(day) * CHART_HEIGHT / most);
+                g.setColor(stats.completed(day) > 0 ? SUCCESS_COLOR : DISABLED_COLOR);
+                g.fillRect(x, CHART_HEIGHT - height, BAR_WIDTH, height);
+            }
+        }
+
+        private static String tooltip(TaskStats stats) {
+            StringBuilder html = new StringBuilder("<html><table><tr><td></td>");
+            for (Priority priority : Priority.values()) {
+                html.append("<td align=right>").append(priority).append("</td>");
+            }
+            html.append("<td align=right>All</td></tr>");
+            for (Status status : Status.values()) {
+                html.append("<tr><td>").append(status).append("</td>");
+                for (Priority priority : Priority.values()) {
+                    html.append("<td align=right>").append(stats.count(status, priority)).append("</td>");
+                }
+                html.append("<td align=right>").append(stats.count(status)).append("</td></tr>");
+            }
+            html.append("</table>Done per day:");
+            for (int day = stats.days() - 1; day >= 0; day--) {
+                html.append(day == stats.days() - 1 ? " " : ", ")
+                    .append(day == 0 ? "today"
+                        : stats.today.minusDays(day).getDayOfWeek().getDisplayName(TextStyle.SHORT, Locale.getDefault()))
+                    .append(' ').append(stats.completed(day));
+            }
+            return html.append("</html>").toString();
+        }
+    }
+
     private static class PriorityComboBoxRenderer extends DefaultListCellRenderer {
         @Override
         public Component getListCellRendererComponent(JList<?> list, Object value, 
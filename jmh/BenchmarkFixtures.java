@@ -0,0 +1,125 @@
+package src;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Generated tasks.db files, and LogTaskStorage logs of the same tasks,
+// shared by the benchmarks. Each size is built once under
+// target/jmh-fixtures (or -Dtodo.fixtures=DIR) and reused; benchmarks that
+// write work on a private copy.
+final class BenchmarkFixtures {
+    static final long DAY = 24L * 60 * 60 * 1000;
+
+    private static final Path DIR = Paths.get(System.getProperty("todo.fixtures", "target/jmh-fixtures"));
+    private static final int CHUNK = 10_000;
+
+    private BenchmarkFixtures() {
+    }
+
+    static synchronized Path database(int rows) throws IOException, SQLException {
+        Path file = DIR.resolve("tasks-" + rows + ".db");
+        if (Files.exists(file)) {
+            return file;
+        }
+        Files.createDirectories(DIR);
+        Path partial = DIR.resolve("tasks-" + rows + ".db.partial");
+        Files.deleteIfExists(partial);
+
+        String url = url(partial);
+        TaskRepository repository = new TaskRepository(url);
+        repository.open().join();
+        repository.close();
+
+        // Due times spread over a year either side of now; roughly 60%
+        // pending, 10% overdue, 20% done and 10% dismissed
+        Random random = new Random(rows);
+        long now = System.currentTimeMillis() / 60_000 * 60_000;
+        try (Connection conn = DriverManager.getConnection(url);
+             PreparedStatement insert = conn.prepareStatement(
+                 "INSERT INTO tasks(task, due, priority, status) VALUES (?, ?, ?, ?)")) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < rows; i++) {
+                long due = now + (random.nextInt(730) - 365) * DAY + random.nextInt(24 * 60) * 60_000L;
+                int roll = random.nextInt(10);
+                Status status = roll < 2 ? Status.DONE
+                    : roll < 3 ? Status.DISMISSED
+                    : due < now ? Status.OVERDUE
+                    : Status.PENDING;
+                insert.setString(1, "Benchmark task " + i + " " + Long.toString(random.nextLong(), 36));
+                insert.setLong(2, due);
+                insert.setInt(3, random.nextInt(Priority.values().length));
+                insert.setInt(4, status.code);
+                insert.addBatch();
+                if ((i + 1) % CHUNK == 0) {
+                    insert.executeBatch();
+                    conn.commit();
+                }
+            }
+            insert.executeBatch();
+            conn.commit();
+        }
+        Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+        return file;
+    }
+
+    static Path copy(int rows) throws IOException, SQLException {
+        Path copy = Files.createTempFile("tasks-bench-", ".db");
+        Files.copy(database(rows), copy, StandardCopyOption.REPLACE_EXISTING);
+        copy.toFile().deleteOnExit();
+        return copy;
+    }
+
+    // The same tasks as database(rows), as a LogTaskStorage file written in
+    // chunks of CHUNK tasks
+    static synchronized Path log(int rows) throws IOException, SQLException {
+        Path file = DIR.resolve("tasks-" + rows + ".log");
+        if (Files.exists(file)) {
+            return file;
+        }
+        Path partial = DIR.resolve("tasks-" + rows + ".log.partial");
+        Files.deleteIfExists(partial);
+        TaskRepository repository = new TaskRepository(url(database(rows)));
+        LogTaskStorage log = new LogTaskStorage(partial);
+        try {
+            repository.open().join();
+            log.open().join();
+            List<Task> chunk = new ArrayList<>(CHUNK);
+            repository.forEachTask(task -> {
+                chunk.add(task);
+                if (chunk.size() == CHUNK) {
+                    log.insertAll(new ArrayList<>(chunk)).join();
+                    chunk.clear();
+                }
+            }).join();
+            log.insertAll(chunk).join();
+        } finally {
+            log.close();
+            repository.close();
+        }
+        Files.deleteIfExists(DIR.resolve(partial.getFileName() + ".lock"));
+        Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+        return file;
+    }
+
+    static Path copyLog(int rows) throws IOException, SQLException {
+        Path copy = Files.createTempFile("tasks-bench-", ".log");
+        Files.copy(log(rows), copy, StandardCopyOption.REPLACE_EXISTING);
+        copy.toFile().deleteOnExit();
+        copy.resolveSibling(copy.getFileName() + ".lock").toFile().deleteOnExit();
+        return copy;
+    }
+
+    static String url(Path file) {
+        return "jdbc:sqlite:" + file.toAbsolutePath();
+    }
+}
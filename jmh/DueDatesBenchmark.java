@@ -0,0 +1,27 @@
+package src;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DueDatesBenchmark {
+    private final String text = "2025-06-15 14:30";
+    private final long epochMillis = System.currentTimeMillis();
+
+    @Benchmark
+    public long parse() throws ParseException {
+        return DueDates.parse(text);
+    }
+
+    @Benchmark
+    public String format() {
+        return DueDates.format(epochMillis);
+    }
+}
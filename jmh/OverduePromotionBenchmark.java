@@ -0,0 +1,61 @@
+package src;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// A load right after the given number of pending tasks went overdue. The
+// promotion is one set-based UPDATE, so this should stay nearly flat as
+// the overdue count grows.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OverduePromotionBenchmark {
+    @Param({"0", "100", "1000", "10000"})
+    public int overdue;
+
+    private TaskRepository repository;
+    private Connection setup;
+    private PreparedStatement reset;
+
+    @Setup
+    public void open() throws Exception {
+        String url = BenchmarkFixtures.url(BenchmarkFixtures.copy(100_000));
+        repository = new TaskRepository(url);
+        repository.open().join();
+        setup = DriverManager.getConnection(url);
+        reset = setup.prepareStatement(
+            "UPDATE tasks SET status=? WHERE id IN " +
+            "(SELECT id FROM tasks WHERE due < ? AND status IN (?, ?) ORDER BY id LIMIT ?)");
+    }
+
+    @Setup(Level.Invocation)
+    public void makePending() throws SQLException {
+        reset.setInt(1, Status.PENDING.code);
+        reset.setLong(2, System.currentTimeMillis());
+        reset.setInt(3, Status.PENDING.code);
+        reset.setInt(4, Status.OVERDUE.code);
+        reset.setInt(5, overdue);
+        reset.executeUpdate();
+    }
+
+    @TearDown
+    public void close() throws SQLException {
+        reset.close();
+        setup.close();
+        repository.close();
+    }
+
+    @Benchmark
+    public List<Task> loadAfterOverdue() {
+        return repository.loadAll(1).join();
+    }
+}
@@ -0,0 +1,62 @@
+package src;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Heap retained by the full in-memory task list, the memory the
+// non-windowed list model holds. The load time includes the forced GCs;
+// the numbers to compare across commits are the bytesPerTask and
+// retainedMegabytes counters, which JMH sums across iterations, hence a
+// single measured one.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class TaskFootprintBenchmark {
+    @Param({"1000000"})
+    public int rows;
+
+    private TaskRepository repository;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesPerTask;
+        public long retainedMegabytes;
+    }
+
+    @Setup
+    public void open() throws Exception {
+        repository = new TaskRepository(BenchmarkFixtures.url(BenchmarkFixtures.copy(rows)));
+        repository.open().join();
+    }
+
+    @TearDown
+    public void close() {
+        repository.close();
+    }
+
+    @Benchmark
+    public int loadAll(Footprint footprint) {
+        long before = usedHeapAfterGc();
+        List<Task> tasks = repository.loadAll(Integer.MAX_VALUE).join();
+        long retained = usedHeapAfterGc() - before;
+        footprint.bytesPerTask = retained / Math.max(1, tasks.size());
+        footprint.retainedMegabytes = retained >> 20;
+        return tasks.size();
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
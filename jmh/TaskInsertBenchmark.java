@@ -0,0 +1,71 @@
+package src;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Cost per inserted task: one autocommitted INSERT through the repository
+// against a batch of BATCH rows in a single transaction
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class TaskInsertBenchmark {
+    static final int BATCH = 1000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private TaskRepository repository;
+    private Connection conn;
+    private PreparedStatement insert;
+    private long due;
+
+    @Setup
+    public void open() throws Exception {
+        String url = BenchmarkFixtures.url(BenchmarkFixtures.copy(rows));
+        repository = new TaskRepository(url);
+        repository.open().join();
+        conn = DriverManager.getConnection(url);
+        insert = conn.prepareStatement("INSERT INTO tasks(task, due, priority, status) VALUES (?, ?, ?, ?)");
+        due = System.currentTimeMillis() + BenchmarkFixtures.DAY;
+    }
+
+    @TearDown
+    public void close() throws SQLException {
+        insert.close();
+        conn.close();
+        repository.close();
+    }
+
+    @Benchmark
+    public Task singleInsert() {
+        return repository.add("Benchmark insert", due, Priority.MEDIUM).join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int[] batchedInsert() throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            for (int i = 0; i < BATCH; i++) {
+                insert.setString(1, "Benchmark insert");
+                insert.setLong(2, due);
+                insert.setInt(3, Priority.MEDIUM.code);
+                insert.setInt(4, Status.PENDING.code);
+                insert.addBatch();
+            }
+            int[] counts = insert.executeBatch();
+            conn.commit();
+            return counts;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package src;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Read paths: the full list load, the reminder scan, one lazy page, a
+// search-as-you-type query and the dashboard's statistics
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class TaskQueryBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private TaskRepository repository;
+
+    @Setup
+    public void open() throws Exception {
+        repository = new TaskRepository(BenchmarkFixtures.url(BenchmarkFixtures.copy(rows)));
+        repository.open().join();
+    }
+
+    @TearDown
+    public void close() {
+        repository.close();
+    }
+
+    @Benchmark
+    public List<Task> loadAll() {
+        return repository.loadAll(Integer.MAX_VALUE).join();
+    }
+
+    @Benchmark
+    public List<Task> dueTaskScan() {
+        long horizon = System.currentTimeMillis() + DueNotifier.DUE_SOON_WINDOW;
+        return repository.loadOpenDueBefore(horizon).join();
+    }
+
+    @Benchmark
+    public List<Task> middlePage() {
+        return repository.loadPage(rows / 2, null, LazyTaskListModel.PAGE_SIZE).join();
+    }
+
+    @Benchmark
+    public List<Task> search() {
+        return repository.search("task 4242", 200).join();
+    }
+
+    @Benchmark
+    public TaskStats stats() {
+        return repository.stats(7).join();
+    }
+}
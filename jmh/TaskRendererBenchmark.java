@@ -0,0 +1,67 @@
+package src;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.JList;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+// Paints one screenful of rows, the work a scroll step costs the renderer.
+// Run with -prof gc to check the per-cell allocation rate.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TaskRendererBenchmark {
+    static final int VISIBLE_ROWS = 10;
+    static final int WIDTH = 700;
+    static final int HEIGHT = 70;
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private JList<Task> list;
+    private ToDoListApp.ModernTaskRenderer renderer;
+    private BufferedImage canvas;
+    private Graphics2D graphics;
+    private int first;
+
+    @Setup
+    public void setUp() throws Exception {
+        TaskRepository repository = new TaskRepository(BenchmarkFixtures.url(BenchmarkFixtures.copy(rows)));
+        repository.open().join();
+        TaskListModel model = new TaskListModel();
+        model.apply(repository.loadAll(Integer.MAX_VALUE).join());
+        repository.close();
+
+        list = new JList<>(model);
+        renderer = new ToDoListApp.ModernTaskRenderer();
+        canvas = new BufferedImage(WIDTH, HEIGHT * VISIBLE_ROWS, BufferedImage.TYPE_INT_RGB);
+        graphics = canvas.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paintVisibleRows() {
+        int size = list.getModel().getSize();
+        for (int i = 0; i < VISIBLE_ROWS; i++) {
+            int index = (first + i) % size;
+            Component cell = renderer.getListCellRendererComponent(list, list.getModel().getElementAt(index),
+                index, index == first, false);
+            cell.setBounds(0, 0, WIDTH, HEIGHT);
+            Graphics2D g = (Graphics2D) graphics.create(0, i * HEIGHT, WIDTH, HEIGHT);
+            cell.paint(g);
+            g.dispose();
+        }
+        first = (first + 1) % size;
+        return canvas;
+    }
+}
@@ -0,0 +1,91 @@
+package src;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// The local API under load. Each invocation sends `concurrency` requests
+// at once from an async client over localhost and waits for all of them,
+// so the score is the time to serve that many with all of them in flight;
+// divide to get requests per second.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class TaskServerBenchmark {
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"1000", "4000"})
+    public int concurrency;
+
+    private TaskRepository repository;
+    private TaskServer server;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private String base;
+    private String etag;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void open() throws Exception {
+        repository = new TaskRepository(BenchmarkFixtures.url(BenchmarkFixtures.copy(rows)));
+        repository.open().join();
+        server = TaskServer.start(repository, 0);
+        base = "http://127.0.0.1:" + server.port() + "/tasks/";
+        clientExecutor = Executors.newFixedThreadPool(4);
+        client = HttpClient.newBuilder().executor(clientExecutor).build();
+        etag = client.send(HttpRequest.newBuilder(URI.create(base + 1)).build(), HttpResponse.BodyHandlers.discarding())
+            .headers().firstValue("ETag").orElseThrow();
+    }
+
+    @TearDown
+    public void close() {
+        server.close();
+        repository.close();
+        clientExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public int getTask() {
+        return sendAll(false, 200);
+    }
+
+    // Clients revalidating with the tag they already hold
+    @Benchmark
+    public int getTaskNotModified() {
+        return sendAll(true, 304);
+    }
+
+    private int sendAll(boolean revalidate, int expected) {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + (1 + random.nextInt(rows))));
+            if (revalidate) {
+                request.header("If-None-Match", etag);
+            }
+            responses.add(client.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding()));
+        }
+        int ok = 0;
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            int status = response.join().statusCode();
+            if (status != expected) {
+                throw new IllegalStateException("Expected " + expected + " but got " + status);
+            }
+            ok++;
+        }
+        return ok;
+    }
+}
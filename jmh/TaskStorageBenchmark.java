@@ -0,0 +1,86 @@
+package src;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// The two TaskStorage backends side by side: the latency of one add and of
+// a flush of 100 coalesced edits (each one commit or one appended frame),
+// and startup, from opening the file to the full list in memory. Startup
+// opens a separate copy each time, so it measures the open and replay with
+// the file in the page cache, not the disk.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskStorageBenchmark {
+    private static final int BATCH = 100;
+
+    @Param({"sqlite", "log"})
+    public String backend;
+
+    @Param({"100000"})
+    public int rows;
+
+    private TaskStorage storage;
+    private Path startupFile;
+    private long due;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void open() throws Exception {
+        storage = open(copy());
+        storage.open().join();
+        startupFile = copy();
+        due = System.currentTimeMillis() + BenchmarkFixtures.DAY;
+    }
+
+    @TearDown
+    public void close() {
+        storage.close();
+    }
+
+    private Path copy() throws Exception {
+        return backend.equals("log") ? BenchmarkFixtures.copyLog(rows) : BenchmarkFixtures.copy(rows);
+    }
+
+    private TaskStorage open(Path file) {
+        return backend.equals("log") ? new LogTaskStorage(file) : new TaskRepository(BenchmarkFixtures.url(file));
+    }
+
+    @Benchmark
+    public Task add() {
+        return storage.add("Benchmark add", due, Priority.MEDIUM).join();
+    }
+
+    // What TaskStore writes when it flushes a burst of snoozes
+    @Benchmark
+    public void applyBatch() {
+        List<TaskStorage.Change> changes = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            changes.add(new TaskStorage.Change(1 + random.nextInt(rows), null, due + random.nextInt(1_000) * 60_000L, false));
+        }
+        storage.applyChanges(changes).join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public int startup() {
+        TaskStorage opened = open(startupFile);
+        try {
+            opened.open().join();
+            return opened.changesSince(-1, -1, Integer.MAX_VALUE).join().changed.size();
+        } finally {
+            opened.close();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package src;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Switching between the list's saved views over an in-memory list, with
+// every view already answered once (the cached case), and answering a view
+// again after an edit has invalidated it.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskViewBenchmark {
+    @Param({"100000"})
+    public int rows;
+
+    private TaskViewIndex index;
+    private Task[] tasks;
+    private long now;
+    private int next;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setUp() {
+        now = System.currentTimeMillis();
+        index = new TaskViewIndex();
+        tasks = new Task[rows];
+        Status[] statuses = Status.values();
+        Priority[] priorities = Priority.values();
+        for (int i = 0; i < rows; i++) {
+            long due = now + (random.nextInt(60 * 24 * 60) - 30 * 24 * 60) * 60_000L;
+            tasks[i] = new Task(i + 1, "Task " + i, due,
+                priorities[random.nextInt(priorities.length)], statuses[random.nextInt(statuses.length)]);
+            index.update(null, tasks[i]);
+        }
+        for (TaskView view : TaskView.SAVED) {
+            index.get(view, now);
+        }
+    }
+
+    @Benchmark
+    public List<Task> switchView() {
+        TaskView view = TaskView.SAVED[next++ % TaskView.SAVED.length];
+        return index.get(view, now);
+    }
+
+    // One task completed, then the open list shown again
+    @Benchmark
+    public List<Task> editThenView() {
+        int i = random.nextInt(rows);
+        Task before = tasks[i];
+        Task after = before.withStatus(before.getStatus().isOpen() ? Status.DONE : Status.PENDING);
+        index.update(before, after);
+        tasks[i] = after;
+        return index.get(TaskView.OPEN_TASKS, now);
+    }
+}